@@ -0,0 +1,115 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+
+/**
+ * Reads all rows of a data file, parsing large files on the common fork-join pool
+ * when there is more than one processor.
+ *
+ * A task covers a byte range starting at a line start. Above the chunk size it cuts
+ * the range in two just after the first newline past the middle, so every line lies
+ * in exactly one piece; below it, it parses the range through positional reads of
+ * the one shared channel. The pieces' rows are handed on in file order, so the rows
+ * are exactly those of a sequential read, empty lines and the unterminated last line
+ * included, and indexes built from them come out the same. The calling thread
+ * parses pieces too, next to the pool's workers.
+ */
+public class ChunkedReader {
+    // Below this many bytes a task parses its range itself; about 130k lines of the
+    // collaboration file, some tens of milliseconds of parsing
+    static final long CHUNK_BYTES = 4L << 20;
+    private static final int NEWLINE_PROBE = 4096;
+
+    private ChunkedReader() {
+    }
+
+    /** Calls the sink with every row in bytes [0, length) of the file, in file order. */
+    public static void readRows(File file, long length, Metrics.FileReads reads, Consumer<String[]> sink)
+            throws IOException {
+        readRows(file, length, CHUNK_BYTES, reads, sink);
+    }
+
+    static void readRows(File file, long length, long chunkBytes, Metrics.FileReads reads, Consumer<String[]> sink)
+            throws IOException {
+        if (!file.exists() || length <= 0) return;
+        if (length <= chunkBytes || Runtime.getRuntime().availableProcessors() < 2) {
+            RecordTokenizer.readLines(file, 0, length, true, reads, fields -> sink.accept(fields.row()));
+            return;
+        }
+        List<List<String[]>> chunks;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            reads.opened();
+            chunks = new Chunk(channel, 0, length, chunkBytes, reads).invoke();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        for (List<String[]> rows : chunks) {
+            for (String[] row : rows) sink.accept(row);
+        }
+    }
+
+    // Rows of each piece of [from, to), one list per piece in file order
+    private static class Chunk extends RecursiveTask<List<List<String[]>>> {
+        private static final long serialVersionUID = 1L;
+
+        private final FileChannel channel;
+        private final long from;
+        private final long to;
+        private final long chunkBytes;
+        private final Metrics.FileReads reads;
+
+        Chunk(FileChannel channel, long from, long to, long chunkBytes, Metrics.FileReads reads) {
+            this.channel = channel;
+            this.from = from;
+            this.to = to;
+            this.chunkBytes = chunkBytes;
+            this.reads = reads;
+        }
+
+        @Override
+        protected List<List<String[]>> compute() {
+            try {
+                long split = to - from > chunkBytes ? lineStartAfter(from + (to - from) / 2) : to;
+                if (split >= to) {
+                    List<String[]> rows = new ArrayList<>();
+                    RecordTokenizer.readLines(channel, from, to, true, reads, fields -> rows.add(fields.row()));
+                    List<List<String[]>> pieces = new ArrayList<>();
+                    pieces.add(rows);
+                    return pieces;
+                }
+                Chunk second = new Chunk(channel, split, to, chunkBytes, reads);
+                second.fork();
+                List<List<String[]>> pieces = new Chunk(channel, from, split, chunkBytes, reads).compute();
+                pieces.addAll(second.join());
+                return pieces;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        // Offset just after the first newline at or past position, or to when there is
+        // none before the end of the range
+        private long lineStartAfter(long position) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(NEWLINE_PROBE);
+            while (position < to) {
+                buffer.clear();
+                buffer.limit((int) Math.min(buffer.capacity(), to - position));
+                int read = channel.read(buffer, position);
+                if (read <= 0) return to;
+                reads.read(read);
+                for (int i = 0; i < read; i++) {
+                    if (buffer.get(i) == '\n') return position + i + 1;
+                }
+                position += read;
+            }
+            return to;
+        }
+    }
+}
@@ -0,0 +1,357 @@
+import java.util.*;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Undirected collaboration graph over dense user IDs from an {@link IdDictionary}.
+ *
+ * The adjacency built by {@link #build(List)} is kept in compressed sparse row form:
+ * the neighbours of node u are targets[offsets[u] .. offsets[u + 1]), sorted and
+ * without duplicates. Edges added or removed afterwards by the collaboration dialogs
+ * go to a small overlay (per-node append arrays plus a bitset of removed CSR slots)
+ * which is folded back into the CSR arrays once it grows past a quarter of the graph.
+ *
+ * Connected components are kept in a union-find forest next to the adjacency. Added
+ * edges are unioned right away; a removed edge may split a component, so it only
+ * marks the forest stale and the next {@link #component(int)} call rebuilds it.
+ */
+public class CollabGraph {
+    private static final int[] NO_NEIGHBOURS = new int[0];
+
+    private final IdDictionary userIds;
+
+    private int[] offsets = new int[1];
+    private int[] targets = new int[0];
+
+    private int[][] added = new int[0][];
+    private int[] addedCount = new int[0];
+    private final BitSet removed = new BitSet();
+    private int overlaySize = 0;
+    private int edgeCount = 0;
+    private long modifications = 0;
+
+    private int[] parent = new int[0];
+    private boolean componentsStale = false;
+
+    public CollabGraph(IdDictionary userIds) {
+        this.userIds = userIds;
+    }
+
+    /** Rebuilds the graph from the collaboration rows in a single pass. */
+    public synchronized void build(List<String[]> rows) {
+        int[] src = new int[Math.max(16, rows.size() * 2)];
+        int[] dst = new int[src.length];
+        int m = 0;
+
+        for (String[] parts : rows) {
+            try {
+                String[] pair = parts[0].split(",");
+                int a = userIds.intern(pair[0]);
+                int b = userIds.intern(pair[1]);
+                if (m + 2 > src.length) {
+                    src = Arrays.copyOf(src, src.length * 2);
+                    dst = Arrays.copyOf(dst, dst.length * 2);
+                }
+                src[m] = a; dst[m++] = b;
+                src[m] = b; dst[m++] = a;
+            } catch (Exception e) {
+                continue;
+            }
+        }
+        load(userIds.size(), src, dst, m);
+        modifications++;
+    }
+
+    public synchronized void addEdge(String user1, String user2) {
+        int a = userIds.intern(user1);
+        int b = userIds.intern(user2);
+        if (hasEdge(a, b)) return;
+
+        ensureNodes(userIds.size());
+        appendOverlay(a, b);
+        if (a != b) appendOverlay(b, a);
+        edgeCount++;
+        modifications++;
+        if (!componentsStale) union(a, b);
+        compactIfNeeded();
+    }
+
+    public synchronized void removeEdge(String user1, String user2) {
+        int a = userIds.id(user1);
+        int b = userIds.id(user2);
+        if (a < 0 || b < 0 || !hasEdge(a, b)) return;
+
+        removeDirected(a, b);
+        if (a != b) removeDirected(b, a);
+        edgeCount--;
+        modifications++;
+        componentsStale = true;
+        compactIfNeeded();
+    }
+
+    public synchronized boolean isEmpty() {
+        return edgeCount == 0;
+    }
+
+    public synchronized int edgeCount() {
+        return edgeCount;
+    }
+
+    /** Number of builds and edge changes so far; unchanged means the graph is the same. */
+    public synchronized long modifications() {
+        return modifications;
+    }
+
+    public synchronized boolean hasEdge(int a, int b) {
+        return csrSlot(a, b) >= 0 || overlaySlot(a, b) >= 0;
+    }
+
+    /**
+     * Representative of u's connected component; two users can reach each other exactly
+     * when their components are equal. Users without any edge are their own component.
+     */
+    public synchronized int component(int u) {
+        if (componentsStale) {
+            rebuildComponents();
+        }
+        return u < 0 || u >= parent.length ? u : root(u);
+    }
+
+    /** Number of users in the component whose representative component(int) returned. */
+    public synchronized int componentSize(int representative) {
+        if (componentsStale) {
+            rebuildComponents();
+        }
+        if (representative < 0 || representative >= parent.length) return 1;
+        int size = 0;
+        for (int v = 0; v < parent.length; v++) {
+            if (root(v) == representative) size++;
+        }
+        return size;
+    }
+
+    /** Depth-first reachability from start; unknown users only reach themselves. */
+    public synchronized BitSet dfs(String start) {
+        int s = userIds.intern(start);
+        BitSet visited = new BitSet(userIds.size());
+        // Nodes are marked when pushed, so each one enters the stack at most once
+        int[] stack = new int[Math.max(s + 1, nodeCount())];
+        int top = 0;
+
+        stack[top++] = s;
+        visited.set(s);
+        for (int steps = 1; top > 0; steps++) {
+            checkInterrupted(steps);
+            top = pushUnvisited(stack[--top], visited, stack, top);
+        }
+        return visited;
+    }
+
+    /** Breadth-first reachability from start; unknown users only reach themselves. */
+    public synchronized BitSet bfs(String start) {
+        int s = userIds.intern(start);
+        BitSet visited = new BitSet(userIds.size());
+        int[] queue = new int[Math.max(s + 1, nodeCount())];
+        int head = 0;
+        int tail = 0;
+
+        queue[tail++] = s;
+        visited.set(s);
+        while (head < tail) {
+            checkInterrupted(head);
+            tail = pushUnvisited(queue[head++], visited, queue, tail);
+        }
+        return visited;
+    }
+
+    /** Neighbours of u as a fresh array; CSR entries first, then overlay entries. */
+    public synchronized int[] neighbours(int u) {
+        int base = u + 1 < offsets.length ? offsets[u + 1] - offsets[u] : 0;
+        int extra = u < addedCount.length ? addedCount[u] : 0;
+        if (base == 0 && extra == 0) return NO_NEIGHBOURS;
+
+        int[] result = new int[base + extra];
+        int n = 0;
+        for (int i = 0; i < base; i++) {
+            if (!removed.get(offsets[u] + i)) result[n++] = targets[offsets[u] + i];
+        }
+        if (extra > 0) {
+            System.arraycopy(added[u], 0, result, n, extra);
+            n += extra;
+        }
+        return n == result.length ? result : Arrays.copyOf(result, n);
+    }
+
+    // Marks every unvisited neighbour of u and appends it to buffer, returns the new length
+    private int pushUnvisited(int u, BitSet visited, int[] buffer, int length) {
+        if (u + 1 < offsets.length) {
+            for (int i = offsets[u], end = offsets[u + 1]; i < end; i++) {
+                int v = targets[i];
+                if (!visited.get(v) && !removed.get(i)) {
+                    visited.set(v);
+                    buffer[length++] = v;
+                }
+            }
+        }
+        if (u < addedCount.length) {
+            for (int i = 0; i < addedCount[u]; i++) {
+                int v = added[u][i];
+                if (!visited.get(v)) {
+                    visited.set(v);
+                    buffer[length++] = v;
+                }
+            }
+        }
+        return length;
+    }
+
+    // Lets a cancelled background run stop in the middle of a large traversal
+    private static void checkInterrupted(int steps) {
+        if ((steps & 0xFFF) == 0 && Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("Traversal interrupted");
+        }
+    }
+
+    private int nodeCount() {
+        return Math.max(offsets.length - 1, addedCount.length);
+    }
+
+    private void load(int n, int[] src, int[] dst, int m) {
+        int[] degree = new int[n + 1];
+        for (int i = 0; i < m; i++) degree[src[i] + 1]++;
+        for (int i = 0; i < n; i++) degree[i + 1] += degree[i];
+
+        int[] cursor = Arrays.copyOf(degree, n);
+        int[] raw = new int[m];
+        for (int i = 0; i < m; i++) raw[cursor[src[i]]++] = dst[i];
+
+        // Sort each row and drop duplicate lines for the same pair
+        offsets = new int[n + 1];
+        int out = 0;
+        for (int u = 0; u < n; u++) {
+            int from = degree[u];
+            int to = degree[u + 1];
+            Arrays.sort(raw, from, to);
+            offsets[u] = out;
+            for (int i = from; i < to; i++) {
+                if (out == offsets[u] || raw[i] != raw[out - 1]) raw[out++] = raw[i];
+            }
+        }
+        offsets[n] = out;
+        targets = Arrays.copyOf(raw, out);
+
+        int selfLoops = 0;
+        for (int u = 0; u < n; u++) {
+            if (Arrays.binarySearch(targets, offsets[u], offsets[u + 1], u) >= 0) selfLoops++;
+        }
+        edgeCount = (out + selfLoops) / 2;
+
+        added = new int[n][];
+        addedCount = new int[n];
+        removed.clear();
+        overlaySize = 0;
+        rebuildComponents();
+    }
+
+    private void rebuildComponents() {
+        int n = Math.max(userIds.size(), nodeCount());
+        parent = new int[n];
+        for (int u = 0; u < n; u++) parent[u] = u;
+        for (int u = 0; u + 1 < offsets.length; u++) {
+            for (int i = offsets[u]; i < offsets[u + 1]; i++) {
+                if (!removed.get(i)) union(u, targets[i]);
+            }
+        }
+        for (int u = 0; u < addedCount.length; u++) {
+            for (int i = 0; i < addedCount[u]; i++) union(u, added[u][i]);
+        }
+        componentsStale = false;
+    }
+
+    // Links the roots of a and b, the smaller root ID becomes the parent
+    private void union(int a, int b) {
+        int needed = Math.max(a, b) + 1;
+        if (needed > parent.length) {
+            int old = parent.length;
+            parent = Arrays.copyOf(parent, Math.max(needed, old * 2));
+            for (int u = old; u < parent.length; u++) parent[u] = u;
+        }
+        int ra = root(a);
+        int rb = root(b);
+        if (ra < rb) parent[rb] = ra;
+        else if (rb < ra) parent[ra] = rb;
+    }
+
+    // Path halving keeps the trees flat without recursion
+    private int root(int u) {
+        while (parent[u] != u) {
+            parent[u] = parent[parent[u]];
+            u = parent[u];
+        }
+        return u;
+    }
+
+    private int csrSlot(int a, int b) {
+        if (a + 1 >= offsets.length) return -1;
+        int slot = Arrays.binarySearch(targets, offsets[a], offsets[a + 1], b);
+        return slot >= 0 && !removed.get(slot) ? slot : -1;
+    }
+
+    private int overlaySlot(int a, int b) {
+        if (a >= addedCount.length) return -1;
+        for (int i = 0; i < addedCount[a]; i++) {
+            if (added[a][i] == b) return i;
+        }
+        return -1;
+    }
+
+    private void ensureNodes(int n) {
+        if (addedCount.length >= n) return;
+        int capacity = Math.max(n, addedCount.length * 2);
+        added = Arrays.copyOf(added, capacity);
+        addedCount = Arrays.copyOf(addedCount, capacity);
+    }
+
+    private void appendOverlay(int a, int b) {
+        if (added[a] == null) {
+            added[a] = new int[4];
+        } else if (addedCount[a] == added[a].length) {
+            added[a] = Arrays.copyOf(added[a], added[a].length * 2);
+        }
+        added[a][addedCount[a]++] = b;
+        overlaySize++;
+    }
+
+    private void removeDirected(int a, int b) {
+        int slot = csrSlot(a, b);
+        if (slot >= 0) {
+            removed.set(slot);
+            overlaySize++;
+            return;
+        }
+        slot = overlaySlot(a, b);
+        if (slot >= 0) {
+            added[a][slot] = added[a][--addedCount[a]];
+            overlaySize--;
+        }
+    }
+
+    private void compactIfNeeded() {
+        if (overlaySize <= Math.max(1024, targets.length / 4)) return;
+
+        int n = Math.max(userIds.size(), nodeCount());
+        int[] src = new int[edgeCount * 2 + 2];
+        int[] dst = new int[src.length];
+        int m = 0;
+        for (int u = 0; u < n; u++) {
+            for (int v : neighbours(u)) {
+                if (m == src.length) {
+                    src = Arrays.copyOf(src, src.length * 2);
+                    dst = Arrays.copyOf(dst, dst.length * 2);
+                }
+                src[m] = u;
+                dst[m++] = v;
+            }
+        }
+        load(n, src, dst, m);
+    }
+}
@@ -0,0 +1,304 @@
+import java.io.*;
+import java.util.*;
+
+/**
+ * Writes a synthetic data set in the four pipe-delimited formats, for load tests and
+ * benchmarks at sizes far beyond the shipped files:
+ *
+ *     java DataGenerator --users=1000000 --edges=20000000 --out=generated
+ *
+ * Everything is derived from the seed, so the same options always give the same files.
+ * Nothing is kept per user: a user's skills are recomputed from (seed, user) when the
+ * skill file lists its holders, and collaboration lines are sampled one at a time, so
+ * memory stays flat whatever the size.
+ *
+ * Options (defaults in brackets):
+ *   --users [10000], --edges [users * 4], --projects [max(8, users / 1000)], --skills [48]
+ *   --seed [42]
+ *   --skillSkew [1.0]     Zipf exponent of skill popularity, 0 gives uniform skills
+ *   --degreeExponent [2.5] power-law exponent of the collaboration degree distribution
+ *   --communities [max(1, users / 500)] number of user communities
+ *   --mixing [0.1]        share of collaborations that cross communities
+ *   --availability [0.8]  share of users marked available
+ *   --out [generated]     output directory
+ *
+ * Collaborations follow a Chung-Lu style model: each endpoint is drawn inside a
+ * community with probability proportional to (rank + 1)^(-1 / (exponent - 1)), which
+ * gives the requested degree exponent, and ranks are scattered over the community by
+ * a fixed permutation so hubs are not simply the lowest IDs. Repeated pairs can occur
+ * and are summed by the application like any other repeated collaboration line.
+ */
+public class DataGenerator {
+    private static final String[] SKILL_NAMES = {
+        "Java", "Python", "JavaScript", "React", "Figma", "Leadership", "SQL", "HTML", "CSS",
+        "ProjectManagement", "C++", "MongoDB", "UIUX", "NodeJS", "PHP", "Laravel", "Kotlin",
+        "AndroidDev", "UXResearch", "Docker", "Kubernetes", "Go", "Rust", "TensorFlow", "Unity"
+    };
+    private static final String[] CATEGORIES = {"Teknikal", "Desain", "Softskill", "Backend", "Frontend", "Database", "DevOps", "AI"};
+    private static final String[] STATUSES = {"not_started", "not_started", "not_started", "on_going", "completed"};
+
+    private final long seed;
+    private final int users;
+    private final long edges;
+    private final int projects;
+    private final int skills;
+    private final double skillSkew;
+    private final double degreeExponent;
+    private final int communities;
+    private final double mixing;
+    private final double availability;
+
+    private final double[] skillCdf;
+    private final int userWidth;
+    private final int projectWidth;
+
+    public DataGenerator(Map<String, String> options) {
+        users = Integer.parseInt(options.getOrDefault("users", "10000"));
+        edges = Long.parseLong(options.getOrDefault("edges", String.valueOf(users * 4L)));
+        projects = Integer.parseInt(options.getOrDefault("projects", String.valueOf(Math.max(8, users / 1000))));
+        skills = Integer.parseInt(options.getOrDefault("skills", "48"));
+        seed = Long.parseLong(options.getOrDefault("seed", "42"));
+        skillSkew = Double.parseDouble(options.getOrDefault("skillSkew", "1.0"));
+        degreeExponent = Double.parseDouble(options.getOrDefault("degreeExponent", "2.5"));
+        communities = Math.max(1, Math.min(users, Integer.parseInt(
+            options.getOrDefault("communities", String.valueOf(Math.max(1, users / 500))))));
+        mixing = Double.parseDouble(options.getOrDefault("mixing", "0.1"));
+        availability = Double.parseDouble(options.getOrDefault("availability", "0.8"));
+
+        if (users < 2 || skills < 1 || projects < 1 || edges < 0) {
+            throw new IllegalArgumentException("Need at least 2 users, 1 skill and 1 project");
+        }
+        if (degreeExponent <= 1.0) {
+            throw new IllegalArgumentException("degreeExponent must be greater than 1");
+        }
+
+        skillCdf = new double[skills];
+        double total = 0.0;
+        for (int s = 0; s < skills; s++) {
+            total += Math.pow(s + 1, -skillSkew);
+            skillCdf[s] = total;
+        }
+        for (int s = 0; s < skills; s++) skillCdf[s] /= total;
+        userWidth = Math.max(2, String.valueOf(users).length());
+        projectWidth = Math.max(2, String.valueOf(projects).length());
+    }
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                System.err.println("Unknown argument: " + arg + " (expected --name=value)");
+                System.exit(2);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        File dir = new File(options.getOrDefault("out", "generated"));
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create output directory " + dir);
+        }
+
+        DataGenerator generator = new DataGenerator(options);
+        long start = System.nanoTime();
+        generator.generate(dir);
+        System.out.printf("Generated %d users, %d projects, %d skills and %d collaborations in %s (%.1f s)%n",
+            generator.users, generator.projects, generator.skills, generator.edges, dir,
+            (System.nanoTime() - start) / 1e9);
+    }
+
+    public void generate(File dir) throws IOException {
+        writeUsers(new File(dir, "data_user.txt"));
+        writeSkills(new File(dir, "data_skill.txt"));
+        writeProjects(new File(dir, "data_project.txt"));
+        writeCollaborations(new File(dir, "data_kolaborasi.txt"));
+    }
+
+    private void writeUsers(File file) throws IOException {
+        try (Writer out = writer(file)) {
+            StringBuilder line = new StringBuilder(128);
+            for (int i = 0; i < users; i++) {
+                SplittableRandom random = random(1, i);
+                line.setLength(0);
+                line.append(userId(i)).append("|User").append(i + 1).append('|').append(20 + random.nextInt(36)).append('|');
+                appendSkills(line, userSkills(i));
+                line.append('|').append(random.nextDouble() < availability).append('|');
+                int past = random.nextInt(3);
+                for (int p = 0; p < past; p++) {
+                    if (p > 0) line.append(',');
+                    line.append(projectId(random.nextInt(projects)));
+                }
+                line.append('\n');
+                out.append(line);
+            }
+        }
+    }
+
+    // Skill lines list their holders, found by recomputing every user's skills
+    private void writeSkills(File file) throws IOException {
+        try (Writer out = writer(file)) {
+            for (int s = 0; s < skills; s++) {
+                out.write(String.format("%s|%s|%s|%d|", pad('S', s + 1, Math.max(2, String.valueOf(skills).length())), skillName(s),
+                    CATEGORIES[s % CATEGORIES.length], 1 + (s * 7 + 3) % 5));
+                boolean first = true;
+                for (int i = 0; i < users; i++) {
+                    for (int held : userSkills(i)) {
+                        if (held != s) continue;
+                        if (!first) out.write(',');
+                        out.write(userId(i));
+                        first = false;
+                    }
+                }
+                out.write('\n');
+            }
+        }
+    }
+
+    private void writeProjects(File file) throws IOException {
+        try (Writer out = writer(file)) {
+            StringBuilder line = new StringBuilder(128);
+            for (int p = 0; p < projects; p++) {
+                SplittableRandom random = random(3, p);
+                line.setLength(0);
+                line.append(projectId(p)).append('|');
+                appendSkills(line, distinctSkills(random, 2 + random.nextInt(3)));
+                line.append('|').append(3 + random.nextInt(4))
+                    .append("|Project").append(p + 1)
+                    .append('|').append(STATUSES[random.nextInt(STATUSES.length)]).append('\n');
+                out.append(line);
+            }
+        }
+    }
+
+    private void writeCollaborations(File file) throws IOException {
+        double beta = 1.0 / (degreeExponent - 1.0);
+        SplittableRandom random = random(4, 0);
+        try (Writer out = writer(file)) {
+            StringBuilder line = new StringBuilder(64);
+            for (long e = 0; e < edges; ) {
+                int community = random.nextInt(communities);
+                int a = member(community, random, beta);
+                if (random.nextDouble() < mixing) community = random.nextInt(communities);
+                int b = member(community, random, beta);
+                if (a == b) continue;
+
+                // Pairs inside a community worked together more and more smoothly
+                boolean close = community(a) == community(b);
+                line.setLength(0);
+                line.append(userId(a)).append(',').append(userId(b))
+                    .append('|').append(1 + random.nextInt(close ? 5 : 2)).append('|');
+                appendRatio(line, close ? 50 + random.nextInt(51) : 30 + random.nextInt(61));
+                line.append('|');
+                appendRatio(line, close ? 50 + random.nextInt(51) : 30 + random.nextInt(61));
+                line.append('\n');
+                out.append(line);
+                e++;
+            }
+        }
+    }
+
+    // One to four distinct skills drawn by popularity; a pure function of (seed, user)
+    private int[] userSkills(int user) {
+        SplittableRandom random = random(2, user);
+        return distinctSkills(random, 1 + random.nextInt(Math.min(4, skills)));
+    }
+
+    private int[] distinctSkills(SplittableRandom random, int count) {
+        count = Math.min(count, skills);
+        int[] picked = new int[count];
+        int n = 0;
+        for (int attempt = 0; n < count && attempt < count * 32; attempt++) {
+            int skill = drawSkill(random);
+            boolean duplicate = false;
+            for (int i = 0; i < n; i++) duplicate |= picked[i] == skill;
+            if (!duplicate) picked[n++] = skill;
+        }
+        return n == count ? picked : Arrays.copyOf(picked, n);
+    }
+
+    private int drawSkill(SplittableRandom random) {
+        int index = Arrays.binarySearch(skillCdf, random.nextDouble());
+        return Math.min(skills - 1, index >= 0 ? index : -index - 1);
+    }
+
+    // A user of the community, drawn by power-law rank and scattered over its block
+    private int member(int community, SplittableRandom random, double beta) {
+        int start = blockStart(community);
+        int size = blockStart(community + 1) - start;
+        double u = random.nextDouble();
+        double x = beta == 1.0
+            ? Math.pow(size + 1, u)
+            : Math.pow(1.0 + u * (Math.pow(size + 1, 1.0 - beta) - 1.0), 1.0 / (1.0 - beta));
+        int rank = Math.min(size - 1, Math.max(0, (int) x - 1));
+        return start + scatter(rank, size);
+    }
+
+    private int community(int user) {
+        int c = (int) ((long) user * communities / users);
+        while (c + 1 < communities && blockStart(c + 1) <= user) c++;
+        while (blockStart(c) > user) c--;
+        return c;
+    }
+
+    private int blockStart(int community) {
+        return (int) ((long) community * users / communities);
+    }
+
+    // Bijection on [0, size): multiply by a step coprime to size, then shift
+    private int scatter(int rank, int size) {
+        long step = 0x9E3779B1L % size;
+        while (gcd(step, size) != 1) step++;
+        return (int) ((rank * step + (seed & 0x7FFFFFFF)) % size);
+    }
+
+    private static long gcd(long a, long b) {
+        while (b != 0) {
+            long t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+
+    private SplittableRandom random(int stream, long index) {
+        return new SplittableRandom(seed * 0x9E3779B97F4A7C15L + stream * 0xBF58476D1CE4E5B9L + index * 0x94D049BB133111EBL);
+    }
+
+    private void appendSkills(StringBuilder line, int[] picked) {
+        for (int i = 0; i < picked.length; i++) {
+            if (i > 0) line.append(',');
+            line.append(skillName(picked[i]));
+        }
+    }
+
+    private static void appendRatio(StringBuilder line, int hundredths) {
+        if (hundredths >= 100) {
+            line.append("1.0");
+            return;
+        }
+        line.append("0.");
+        if (hundredths < 10) line.append('0');
+        line.append(hundredths);
+    }
+
+    private String skillName(int s) {
+        return s < SKILL_NAMES.length ? SKILL_NAMES[s] : "Skill" + (s + 1);
+    }
+
+    private String userId(int i) {
+        return pad('U', i + 1, userWidth);
+    }
+
+    private String projectId(int p) {
+        return pad('P', p + 1, projectWidth);
+    }
+
+    private static String pad(char prefix, int number, int width) {
+        String digits = Integer.toString(number);
+        StringBuilder id = new StringBuilder(width + 1).append(prefix);
+        for (int i = digits.length(); i < width; i++) id.append('0');
+        return id.append(digits).toString();
+    }
+
+    private static Writer writer(File file) throws IOException {
+        return new BufferedWriter(new FileWriter(file), 1 << 16);
+    }
+}
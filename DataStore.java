@@ -0,0 +1,1228 @@
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * In-memory copy of the four data files and the saved teams. Every file is read once by {@link #load()}
+ * and each row is indexed by its first column, so lookups no longer scan the files.
+ * While the files are unchanged they are not even parsed: the rows come from the
+ * {@link StoreSnapshot} written the last time they were.
+ *
+ * Changes go through the tables: each one is appended to the table's
+ * {@link MutationLog} and then applied in memory, and the flat files are rewritten
+ * from the tables by a periodic background compaction. Changes that must happen
+ * together, such as a project starting and its team becoming unavailable, go through
+ * a {@link Transaction}.
+ */
+public class DataStore {
+    private final String userFile;
+    private final String skillFile;
+    private final String projectFile;
+    private final String collabFile;
+    private final String scoringFile;
+    private final String pairScoreFile;
+    private final File journalFile;
+    private final File snapshotFile;
+
+    private final Table users = new Table();
+    private final Table skills = new Table();
+    private final Table projects = new Table();
+    private final Table collaborations = new Table();
+    private final Table scoring = new Table();
+    private final Table pairScores = new Table();
+
+    // Journal names of the tables; commits lock them in this order
+    private final Map<String, Table> tables = new LinkedHashMap<>();
+    private final Object commitLock = new Object();
+    private long lastTransaction;
+
+    private final IdDictionary userIds = new IdDictionary();
+    private final PairIndex pairIndex = new PairIndex(userIds);
+    private final SkillIndex skillIndex = new SkillIndex();
+    // Bumped after the indexes took in a change; see dataVersion
+    private final AtomicLong indexChanges = new AtomicLong();
+
+    private ScheduledExecutorService compactor;
+    private Thread watcher;
+    private final List<ExternalChangeListener> externalListeners = new CopyOnWriteArrayList<>();
+
+    /** Changes other programs made to the data files, after the store and its indexes took them in. */
+    public interface ExternalChangeListener {
+        void rowsAppended(Table table, List<String[]> rows);
+        void tableReloaded(Table table);
+    }
+
+    // Saved teams live in data_scoring.txt next to the user file, and their pair scores
+    // in data_scoring_pair.txt beside it
+    public DataStore(String userFile, String skillFile, String projectFile, String collabFile) {
+        this(userFile, skillFile, projectFile, collabFile,
+             new File(new File(userFile).getAbsoluteFile().getParentFile(), "data_scoring.txt").getPath());
+    }
+
+    public DataStore(String userFile, String skillFile, String projectFile, String collabFile, String scoringFile) {
+        this.userFile = userFile;
+        this.skillFile = skillFile;
+        this.projectFile = projectFile;
+        this.collabFile = collabFile;
+        this.scoringFile = scoringFile;
+        this.pairScoreFile = new File(new File(scoringFile).getAbsoluteFile().getParentFile(), "data_scoring_pair.txt").getPath();
+        this.journalFile = new File(new File(userFile).getAbsoluteFile().getParentFile(), "data_transaksi.txn");
+        this.snapshotFile = new File(new File(userFile).getAbsoluteFile().getParentFile(), "data_store.snap");
+        tables.put("users", users);
+        tables.put("skills", skills);
+        tables.put("projects", projects);
+        tables.put("collaborations", collaborations);
+        tables.put("scoring", scoring);
+        tables.put("pairScores", pairScores);
+    }
+
+    public void load() throws IOException {
+        load(false);
+    }
+
+    /**
+     * Loads the same rows without writing anything to the data directory: no snapshot
+     * is written and nothing left by a crash is repaired. Fails when the files cannot
+     * be read right without a repair, an unfinished compaction or committed transaction;
+     * a load by the app or the server finishes those.
+     */
+    public void loadReadOnly() throws IOException {
+        load(true);
+    }
+
+    private void load(boolean readOnly) throws IOException {
+        long start = System.nanoTime();
+        TeamEvents.DataLoad event = new TeamEvents.DataLoad();
+        event.begin();
+        // Recovery may still replace flat files, so the snapshot is checked after it
+        users.open(userFile, readOnly);
+        skills.open(skillFile, readOnly);
+        projects.open(projectFile, readOnly);
+        collaborations.open(collabFile, readOnly);
+        scoring.open(scoringFile, readOnly);
+        pairScores.open(pairScoreFile, readOnly);
+        if (readOnly) checkJournal();
+
+        long[] fingerprint = StoreSnapshot.fingerprint(sourceFiles());
+        long snapshotStart = System.nanoTime();
+        List<List<String[]>> snapshot = StoreSnapshot.read(snapshotFile, sourceFiles());
+        Metrics.SNAPSHOT_READ.record(snapshotStart);
+        List<List<String[]>> flat = new ArrayList<>();
+        int t = 0;
+        for (Table table : tables.values()) {
+            flat.add(table.load(snapshot == null ? null : snapshot.get(t++)));
+        }
+        if (!readOnly) {
+            if (snapshot == null) {
+                writeSnapshot(fingerprint, flat);
+            }
+            recoverJournal();
+        }
+
+        // Users get the low, dense IDs in file order; collaborators not in the user file follow
+        for (String[] row : users.all()) {
+            int uid = userIds.intern(row[0]);
+            if (users.get(row[0]) == row) {
+                skillIndex.setUser(uid, row);
+            }
+        }
+        pairIndex.load(collaborations.all());
+        indexChanges.incrementAndGet();
+        Metrics.STORE_LOAD.record(start);
+        event.end();
+        if (event.shouldCommit()) {
+            event.fromSnapshot = snapshot != null;
+            event.users = users.size();
+            event.projects = projects.size();
+            event.collaborations = collaborations.size();
+            event.commit();
+        }
+    }
+
+    /**
+     * Grows with every change to any table, and again once the indexes have followed it.
+     * Equal values mean nothing changed in between, so results computed from the store
+     * can be kept for as long as this stays the same.
+     */
+    public long dataVersion() {
+        long version = indexChanges.get();
+        for (Table table : tables.values()) {
+            version += table.changeCount();
+        }
+        return version;
+    }
+
+    /** Rewrites every flat file whose log has records every periodSeconds, on a daemon thread. */
+    public synchronized void startCompaction(long periodSeconds) {
+        if (compactor != null) return;
+        compactor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "data-compaction");
+            thread.setDaemon(true);
+            return thread;
+        });
+        compactor.scheduleWithFixedDelay(() -> {
+            try {
+                compact();
+            } catch (IOException e) {
+                // The logs still hold every change; the next run tries again
+                System.err.println("Compaction failed: " + e.getMessage());
+            }
+        }, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+    }
+
+    public void compact() throws IOException {
+        long start = System.nanoTime();
+        try {
+            compactTables();
+        } finally {
+            Metrics.COMPACTION.record(start);
+        }
+    }
+
+    private void compactTables() throws IOException {
+        List<List<String[]>> flat = new ArrayList<>();
+        boolean changed = false;
+        for (Table table : tables.values()) {
+            sync(table);
+            List<String[]> written = table.compact();
+            changed |= written != null;
+            flat.add(written);
+        }
+        if (!changed) return;
+
+        // Tables that were already up to date contribute their rows, unless a change
+        // arrived since; then the next compaction writes the snapshot
+        int t = 0;
+        for (Table table : tables.values()) {
+            if (flat.get(t) == null) {
+                List<String[]> rows = table.rowsIfCompacted();
+                if (rows == null) return;
+                flat.set(t, rows);
+            }
+            t++;
+        }
+        // Taken before the check, so a write after it makes the snapshot stale on load
+        long[] fingerprint = StoreSnapshot.fingerprint(sourceFiles());
+        for (Table table : tables.values()) {
+            if (!table.matchesFile()) return;
+        }
+        writeSnapshot(fingerprint, flat);
+    }
+
+    public void addExternalChangeListener(ExternalChangeListener listener) {
+        externalListeners.add(listener);
+    }
+
+    /**
+     * Watches the directories of the data files and takes in what other programs write
+     * to them, on a daemon thread. Appended lines are parsed from the last known offset;
+     * a truncated or rewritten file is read again in full.
+     */
+    public synchronized void startWatching() throws IOException {
+        if (watcher != null) return;
+        WatchService service = FileSystems.getDefault().newWatchService();
+        Map<Path, Table> watched = new HashMap<>();
+        List<File> sources = sourceFiles();
+        int t = 0;
+        for (Table table : tables.values()) {
+            Path path = sources.get(t++).getAbsoluteFile().toPath();
+            watched.put(path, table);
+            Path directory = path.getParent();
+            directory.register(service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        }
+
+        watcher = new Thread(() -> {
+            try {
+                while (true) {
+                    WatchKey key = service.take();
+                    Path directory = (Path) key.watchable();
+                    Set<Table> touched = new LinkedHashSet<>();
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                            touched.addAll(tables.values());
+                        } else {
+                            Table table = watched.get(directory.resolve((Path) event.context()));
+                            if (table != null) touched.add(table);
+                        }
+                    }
+                    key.reset();
+                    for (Table table : touched) {
+                        try {
+                            sync(table);
+                        } catch (IOException | RuntimeException e) {
+                            System.err.println("Reload failed: " + e.getMessage());
+                        }
+                    }
+                }
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                // Stopped
+            }
+        }, "data-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    private void sync(Table table) throws IOException {
+        Table.FileChange change = table.syncWithFile();
+        if (change == null) return;
+
+        if (table == users) {
+            if (change.reloaded) {
+                for (int uid = 0; uid < userIds.size(); uid++) {
+                    skillIndex.setUser(uid, users.get(userIds.name(uid)));
+                }
+                for (String[] row : users.all()) reindexUser(row[0]);
+            } else {
+                for (String[] row : change.appended) reindexUser(row[0]);
+            }
+        } else if (table == collaborations) {
+            if (change.reloaded) {
+                pairIndex.load(collaborations.all());
+            } else {
+                for (String[] row : change.appended) pairIndex.add(row);
+            }
+        }
+        indexChanges.incrementAndGet();
+
+        for (ExternalChangeListener listener : externalListeners) {
+            if (change.reloaded) listener.tableReloaded(table);
+            else listener.rowsAppended(table, change.appended);
+        }
+    }
+
+    private List<File> sourceFiles() {
+        return Arrays.asList(new File(userFile), new File(skillFile), new File(projectFile),
+                             new File(collabFile), new File(scoringFile), new File(pairScoreFile));
+    }
+
+    // A missing snapshot only costs a text parse at the next start
+    private void writeSnapshot(long[] fingerprint, List<List<String[]>> flat) {
+        try {
+            StoreSnapshot.write(snapshotFile, fingerprint, flat);
+        } catch (IOException e) {
+            System.err.println("Snapshot not written: " + e.getMessage());
+        }
+    }
+
+    public Table users() {
+        return users;
+    }
+
+    public Table skills() {
+        return skills;
+    }
+
+    public Table projects() {
+        return projects;
+    }
+
+    public Table collaborations() {
+        return collaborations;
+    }
+
+    /** Saved teams: teamId|members|projectId|cliqueScore. */
+    public Table scoring() {
+        return scoring;
+    }
+
+    /** Pair scores of the saved teams: teamId|user1,user2|successRate|compatibility|collabBonus|score. */
+    public Table pairScores() {
+        return pairScores;
+    }
+
+    public IdDictionary userIds() {
+        return userIds;
+    }
+
+    public PairIndex pairIndex() {
+        return pairIndex;
+    }
+
+    public SkillIndex skillIndex() {
+        return skillIndex;
+    }
+
+    // User changes go through these so the skill bitsets follow the table
+
+    public void addUser(String[] row) throws IOException {
+        users.append(row);
+        reindexUser(row[0]);
+    }
+
+    public void updateUser(String[] row) throws IOException {
+        users.upsert(row);
+        reindexUser(row[0]);
+    }
+
+    /** Replaces the user only if nobody changed it since version was read; see {@link Table#compareAndSet}. */
+    public boolean updateUser(String[] row, long expectedVersion) throws IOException {
+        boolean updated = users.compareAndSet(row[0], expectedVersion, row);
+        if (updated) reindexUser(row[0]);
+        return updated;
+    }
+
+    public boolean updateUser(String uid, UnaryOperator<String[]> change) throws IOException {
+        boolean updated = users.update(uid, change);
+        reindexUser(uid);
+        return updated;
+    }
+
+    public void deleteUser(String uid) throws IOException {
+        users.delete(uid);
+        reindexUser(uid);
+    }
+
+    private void reindexUser(String uid) {
+        skillIndex.setUser(userIds.intern(uid), users.get(uid));
+        indexChanges.incrementAndGet();
+    }
+
+    // Collaboration changes go through these so the pair index follows the table
+
+    public void addCollaboration(String[] row) throws IOException {
+        collaborations.append(row);
+        pairIndex.add(row);
+        indexChanges.incrementAndGet();
+    }
+
+    public void updateCollaboration(String[] row) throws IOException {
+        collaborations.upsert(row);
+        rebuildPair(row[0]);
+    }
+
+    public boolean updateCollaboration(String[] row, long expectedVersion) throws IOException {
+        boolean updated = collaborations.compareAndSet(row[0], expectedVersion, row);
+        if (updated) rebuildPair(row[0]);
+        return updated;
+    }
+
+    public void deleteCollaboration(String users) throws IOException {
+        if (collaborations.delete(users) > 0) {
+            rebuildPair(users);
+        }
+    }
+
+    private void rebuildPair(String users) {
+        String[] pair = users.split(",");
+        if (pair.length == 2) {
+            pairIndex.rebuildPair(pair[0], pair[1], collaborations.all());
+        }
+        indexChanges.incrementAndGet();
+    }
+
+    public Transaction begin() {
+        return new Transaction();
+    }
+
+    /**
+     * A set of row changes over any of the tables that is made durable and visible as
+     * a whole. Changes are only collected until {@link #commit()}, which
+     *
+     *  1. writes every record to the journal "data_transaksi.txn" and forces it once,
+     *  2. writes each table's records to its log as one group and applies them,
+     *  3. deletes the journal.
+     *
+     * A crash before step 1 completes loses the whole transaction. After it, {@link #load()}
+     * finds the journal and redoes step 2 for every table whose log lacks the group.
+     * Changes staged with {@link #compareAndSet} are checked before step 1; if any row
+     * moved past its expected version nothing is written and commit returns false.
+     */
+    public class Transaction {
+        private final List<Change> changes = new ArrayList<>();
+
+        private Transaction() {
+        }
+
+        public Transaction append(Table table, String[] row) {
+            changes.add(new Change(table, MutationLog.APPEND, row[0], row, null));
+            return this;
+        }
+
+        public Transaction upsert(Table table, String[] row) {
+            changes.add(new Change(table, MutationLog.UPSERT, row[0], row, null));
+            return this;
+        }
+
+        // Upsert that fails the whole commit if the key is no longer at expectedVersion
+        public Transaction compareAndSet(Table table, String key, long expectedVersion, String[] row) {
+            Change change = new Change(table, MutationLog.UPSERT, key, row, null);
+            change.expectedVersion = expectedVersion;
+            changes.add(change);
+            return this;
+        }
+
+        // Applied to the row as it is at commit, including earlier changes of this transaction;
+        // skipped when there is no such row
+        public Transaction update(Table table, String key, UnaryOperator<String[]> change) {
+            changes.add(new Change(table, MutationLog.UPSERT, key, null, change));
+            return this;
+        }
+
+        public Transaction delete(Table table, String key) {
+            changes.add(new Change(table, MutationLog.DELETE, key, null, null));
+            return this;
+        }
+
+        public boolean isEmpty() {
+            return changes.isEmpty();
+        }
+
+        public boolean commit() throws IOException {
+            if (changes.isEmpty()) return true;
+            long start = System.nanoTime();
+            try {
+                return commitChanges();
+            } finally {
+                Metrics.COMMIT.record(start);
+            }
+        }
+
+        private boolean commitChanges() throws IOException {
+            synchronized (commitLock) {
+                List<Table> involved = new ArrayList<>();
+                for (Table table : tables.values()) {
+                    for (Change change : changes) {
+                        if (change.table == table) {
+                            involved.add(table);
+                            break;
+                        }
+                    }
+                }
+                if (!lockAndCommit(involved, 0)) {
+                    return false;
+                }
+            }
+            for (Change change : changes) {
+                if (change.table == users) {
+                    reindexUser(change.key);
+                } else if (change.table == collaborations) {
+                    if (change.op == MutationLog.APPEND) pairIndex.add(change.row);
+                    else rebuildPair(change.key);
+                }
+            }
+            indexChanges.incrementAndGet();
+            return true;
+        }
+
+        // Holds every involved table's lock from the journal write to the journal delete,
+        // so no compaction can rotate a log in between
+        private boolean lockAndCommit(List<Table> involved, int next) throws IOException {
+            if (next < involved.size()) {
+                synchronized (involved.get(next)) {
+                    return lockAndCommit(involved, next + 1);
+                }
+            }
+
+            for (Change change : changes) {
+                if (change.expectedVersion != Change.ANY_VERSION
+                        && change.table.version(change.key) != change.expectedVersion) {
+                    return false;
+                }
+            }
+
+            Map<Table, List<String>> records = new LinkedHashMap<>();
+            Map<Table, Map<String, String[]>> staged = new HashMap<>();
+            for (Change change : changes) {
+                Map<String, String[]> latest = staged.computeIfAbsent(change.table, t -> new HashMap<>());
+                String record;
+                if (change.op == MutationLog.DELETE) {
+                    record = MutationLog.deleteRecord(change.key);
+                    latest.put(change.key, null);
+                } else {
+                    String[] row = change.row;
+                    if (change.change != null) {
+                        String[] current = latest.containsKey(change.key) ? latest.get(change.key) : change.table.get(change.key);
+                        if (current == null) continue;
+                        row = change.change.apply(current);
+                        change.row = row;
+                    }
+                    record = MutationLog.record(change.op, row);
+                    String[] current = latest.containsKey(row[0]) ? latest.get(row[0]) : change.table.get(row[0]);
+                    // An append only becomes the row for its key when there was none
+                    if (change.op == MutationLog.UPSERT || current == null) {
+                        latest.put(row[0], row);
+                    }
+                }
+                records.computeIfAbsent(change.table, t -> new ArrayList<>()).add(record);
+            }
+            if (records.isEmpty()) return true;
+
+            long id = Math.max(System.currentTimeMillis(), lastTransaction + 1);
+            lastTransaction = id;
+            List<String> journal = new ArrayList<>();
+            for (Map.Entry<Table, List<String>> entry : records.entrySet()) {
+                String name = nameOf(entry.getKey());
+                for (String record : entry.getValue()) {
+                    journal.add(name + "|" + record);
+                }
+            }
+            writeJournal(id, journal);
+
+            for (Map.Entry<Table, List<String>> entry : records.entrySet()) {
+                entry.getKey().applyTransaction(id, entry.getValue());
+            }
+            Files.delete(journalFile.toPath());
+            return true;
+        }
+    }
+
+    private static final class Change {
+        static final long ANY_VERSION = -1;
+
+        final Table table;
+        final char op;
+        final String key;
+        String[] row;
+        final UnaryOperator<String[]> change;
+        long expectedVersion = ANY_VERSION;
+
+        Change(Table table, char op, String key, String[] row, UnaryOperator<String[]> change) {
+            this.table = table;
+            this.op = op;
+            this.key = key;
+            this.row = row;
+            this.change = change;
+        }
+    }
+
+    private String nameOf(Table table) {
+        for (Map.Entry<String, Table> entry : tables.entrySet()) {
+            if (entry.getValue() == table) return entry.getKey();
+        }
+        throw new IllegalArgumentException("Table does not belong to this store");
+    }
+
+    private void writeJournal(long id, List<String> records) throws IOException {
+        try (FileOutputStream out = new FileOutputStream(journalFile);
+             Writer writer = new BufferedWriter(new OutputStreamWriter(out))) {
+            writer.write(MutationLog.TRANSACTION + "|" + id + "|" + records.size() + "\n");
+            for (String record : records) {
+                writer.write(record);
+                writer.write('\n');
+            }
+            writer.flush();
+            out.getFD().sync();
+        }
+    }
+
+    // Finishes a transaction whose journal was complete but whose tables may not all have
+    // their group yet; an incomplete journal was never committed and is dropped
+    private void recoverJournal() throws IOException {
+        if (!journalFile.exists()) return;
+        List<String> lines = readJournal();
+        String[] header = lines.isEmpty() ? new String[0] : lines.get(0).split("\\|");
+        if (journalComplete(lines, header)) {
+            long id = Long.parseLong(header[1]);
+            Map<Table, List<String>> records = new LinkedHashMap<>();
+            for (String line : lines.subList(1, 1 + Integer.parseInt(header[2]))) {
+                int split = line.indexOf('|');
+                Table table = tables.get(line.substring(0, split));
+                if (table != null) {
+                    records.computeIfAbsent(table, t -> new ArrayList<>()).add(line.substring(split + 1));
+                }
+            }
+            for (Map.Entry<Table, List<String>> entry : records.entrySet()) {
+                if (!entry.getKey().hasTransaction(id)) {
+                    entry.getKey().applyTransaction(id, entry.getValue());
+                }
+            }
+            lastTransaction = Math.max(lastTransaction, id);
+        }
+        Files.delete(journalFile.toPath());
+    }
+
+    // The read-only counterpart: a complete journal cannot be finished without writing,
+    // while an incomplete one would only be dropped and is ignored
+    private void checkJournal() throws IOException {
+        if (!journalFile.exists()) return;
+        List<String> lines = readJournal();
+        if (journalComplete(lines, lines.isEmpty() ? new String[0] : lines.get(0).split("\\|"))) {
+            throw new IOException(journalFile.getName() + " holds a transaction that is not finished yet");
+        }
+    }
+
+    private List<String> readJournal() throws IOException {
+        Metrics.JOURNAL.opened();
+        Metrics.JOURNAL.read(journalFile.length());
+        return Files.readAllLines(journalFile.toPath());
+    }
+
+    private static boolean journalComplete(List<String> lines, String[] header) {
+        return header.length == 3 && header[0].equals(String.valueOf(MutationLog.TRANSACTION))
+            && lines.size() - 1 >= Integer.parseInt(header[2]);
+    }
+
+    public String[] getUser(String uid) {
+        return users.get(uid);
+    }
+
+    public String[] getProject(String pid) {
+        return projects.get(pid);
+    }
+
+    /**
+     * Rows of one data file in file order, with an index from the first column to the
+     * first row carrying that key. Rows are never modified in place; updates replace
+     * the array so callers may keep references they got from {@link #get(String)}.
+     * Once loaded, every change is logged before it is applied.
+     *
+     * Reads never wait for a writer's disk I/O: they read optimistically under a
+     * StampedLock, the way PairIndex does, and only fall back to a read lock while a
+     * change is being applied in memory. Writers are ordered by the table monitor,
+     * which covers the log write and the apply. Writers of the same key are also
+     * serialized by one of a fixed set of lock stripes, so a read-modify-write such as
+     * {@link #update} never loses a concurrent change to its row. Every change to a
+     * key bumps that key's version, which {@link #compareAndSet} checks.
+     */
+    public static class Table {
+        /** Row-level changes, delivered on the changing thread after the change is visible. */
+        public interface Listener {
+            void rowsInserted(int first, int last);
+            void rowUpdated(int index);
+            void rowDeleted(int index);
+            void reloaded();
+        }
+
+        private static final int STRIPES = 16;
+
+        private final List<String[]> rows = new ArrayList<>();
+        private final Map<String, Integer> firstIndex = new ConcurrentHashMap<>();
+        private final Map<String, Long> versions = new ConcurrentHashMap<>();
+        private final StampedLock rowsLock = new StampedLock();
+        private final Object[] stripes = new Object[STRIPES];
+        private final Object compactionLock = new Object();
+        private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+        // Events of the change being applied, fired once the write lock is released
+        private final List<Runnable> pendingEvents = new ArrayList<>();
+
+        // Guarded by the write lock; a key without an entry in versions has baseVersion
+        private long sequence = 0;
+        private long baseVersion = 0;
+        // Every change to the rows, loads and file syncs included; written under the write lock
+        private volatile long changes = 0;
+
+        private File file;
+        private MutationLog log;
+        private Set<Long> loggedTransactions = new HashSet<>();
+        private List<File> pendingLogs = Collections.emptyList();
+        private boolean loading = false;
+
+        // How much of the flat file the rows reflect, and its last bytes, to tell an
+        // append by another program from a rewrite
+        private long knownLength;
+        private long knownModified;
+        private byte[] knownTail = new byte[0];
+
+        public Table() {
+            for (int i = 0; i < STRIPES; i++) stripes[i] = new Object();
+        }
+
+        // Opens the table's log and repairs the files after a crash; rows are read by load.
+        // Read-only, the logs are only located and a crash that needs repair is an error
+        synchronized void open(String filename, boolean readOnly) throws IOException {
+            if (log != null) {
+                log.carryOver();
+                log.close();
+            }
+            File file = new File(filename);
+            this.file = file;
+            log = new MutationLog(file);
+            pendingLogs = readOnly ? log.pendingLogs() : log.recover();
+        }
+
+        /**
+         * Takes the flat file's rows from the snapshot, or reads the file when there is
+         * none, then replays the pending logs. Returns the flat file's rows.
+         */
+        synchronized List<String[]> load(List<String[]> flatRows) throws IOException {
+            List<String[]> flat;
+            long stamp = rowsLock.writeLock();
+            try {
+                clear();
+                long length = file.length();
+                if (flatRows != null) {
+                    for (String[] row : flatRows) add(row);
+                } else {
+                    long start = System.nanoTime();
+                    ChunkedReader.readRows(file, length, Metrics.DATA_FILE_LOAD, this::add);
+                    Metrics.TEXT_PARSE.record(start);
+                }
+                remember(length);
+                flat = new ArrayList<>(rows);
+                loggedTransactions = new HashSet<>();
+                long replayStart = System.nanoTime();
+                for (File pendingLog : pendingLogs) {
+                    loggedTransactions.addAll(MutationLog.replay(pendingLog, this::apply));
+                }
+                if (!pendingLogs.isEmpty()) Metrics.LOG_REPLAY.record(replayStart);
+                pendingLogs = Collections.emptyList();
+            } finally {
+                loading = false;
+                unlockAndFire(stamp);
+            }
+            return flat;
+        }
+
+        /** Rows another program appended to the flat file, or a full reload when it rewrote it. */
+        static final class FileChange {
+            final List<String[]> appended;
+            final boolean reloaded;
+
+            FileChange(List<String[]> appended, boolean reloaded) {
+                this.appended = appended;
+                this.reloaded = reloaded;
+            }
+        }
+
+        /**
+         * Catches up with changes other programs made to the flat file. When it only grew
+         * and the bytes before the known length are unchanged, just the new complete lines
+         * are parsed; otherwise the file is read again and the log replayed on top.
+         * Returns null when the file holds nothing new.
+         */
+        FileChange syncWithFile() throws IOException {
+            synchronized (compactionLock) {
+                synchronized (this) {
+                    if (file == null) return null;
+                    long length = file.length();
+                    if (length == knownLength && Arrays.equals(tailOf(file, length), knownTail)) {
+                        return null;
+                    }
+                    long start = System.nanoTime();
+                    if (length > knownLength && Arrays.equals(tailOf(file, knownLength), knownTail)) {
+                        List<String[]> appended = new ArrayList<>();
+                        long end = readLines(file, knownLength, length, false, Metrics.DATA_FILE_SYNC, row -> {
+                            if (isRow(row)) appended.add(row);
+                        });
+                        if (appended.isEmpty()) {
+                            return null;
+                        }
+                        long stamp = rowsLock.writeLock();
+                        try {
+                            int first = rows.size();
+                            loading = true;
+                            for (String[] row : appended) add(row);
+                            int last = rows.size() - 1;
+                            pendingEvents.add(() -> {
+                                for (Listener listener : listeners) listener.rowsInserted(first, last);
+                            });
+                            remember(end);
+                        } finally {
+                            loading = false;
+                            unlockAndFire(stamp);
+                        }
+                        Metrics.FILE_SYNC.record(start);
+                        return new FileChange(appended, false);
+                    }
+
+                    long stamp = rowsLock.writeLock();
+                    try {
+                        clear();
+                        ChunkedReader.readRows(file, length, Metrics.DATA_FILE_SYNC, this::add);
+                        remember(length);
+                        for (File pendingLog : log.logs()) {
+                            MutationLog.replay(pendingLog, this::apply);
+                        }
+                    } finally {
+                        loading = false;
+                        unlockAndFire(stamp);
+                    }
+                    Metrics.FILE_SYNC.record(start);
+                    return new FileChange(Collections.emptyList(), true);
+                }
+            }
+        }
+
+        private void remember(long length) throws IOException {
+            knownLength = length;
+            knownModified = file.lastModified();
+            knownTail = tailOf(file, length);
+        }
+
+        // Up to 64 bytes that end at position
+        private static byte[] tailOf(File file, long position) throws IOException {
+            if (position <= 0 || !file.exists()) return new byte[0];
+            try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+                Metrics.TAIL_CHECK.opened();
+                int size = (int) Math.min(64, Math.min(position, in.length()));
+                byte[] tail = new byte[size];
+                in.seek(position - size);
+                in.readFully(tail);
+                Metrics.TAIL_CHECK.read(size);
+                return tail;
+            } catch (EOFException e) {
+                return new byte[0];
+            }
+        }
+
+        /**
+         * Parses the lines in bytes [from, to) of the file into rows and returns the offset
+         * after the last line taken; see RecordTokenizer#readLines.
+         */
+        static long readLines(File file, long from, long to, boolean partialLast, Metrics.FileReads reads,
+                              Consumer<String[]> sink) throws IOException {
+            return RecordTokenizer.readLines(file, from, to, partialLast, reads, fields -> sink.accept(fields.row()));
+        }
+
+        synchronized boolean hasTransaction(long id) {
+            return loggedTransactions.contains(id);
+        }
+
+        // Logs the records as one group, then applies them
+        synchronized void applyTransaction(long id, List<String> records) throws IOException {
+            if (log != null) log.writeTransaction(id, records);
+            long stamp = rowsLock.writeLock();
+            try {
+                for (String record : records) {
+                    MutationLog.replayRecord(record, this::apply);
+                }
+            } finally {
+                unlockAndFire(stamp);
+            }
+        }
+
+        public void addListener(Listener listener) {
+            listeners.add(listener);
+        }
+
+        /** The flat file, or null before the store is loaded. */
+        public File file() {
+            return file;
+        }
+
+        public String[] get(String key) {
+            return read(() -> {
+                Integer index = firstIndex.get(key);
+                return index == null ? null : rows.get(index);
+            });
+        }
+
+        /** Row at a position in file order, or null past the end. */
+        public String[] row(int index) {
+            return read(() -> index >= 0 && index < rows.size() ? rows.get(index) : null);
+        }
+
+        public List<String[]> all() {
+            return read(() -> new ArrayList<>(rows));
+        }
+
+        public int size() {
+            return read(rows::size);
+        }
+
+        /** Number of changes to the rows so far, of any kind; see DataStore#dataVersion. */
+        public long changeCount() {
+            return changes;
+        }
+
+        /** Version of the key's row; it changes with every change to the key, deletes included. */
+        public long version(String key) {
+            return read(() -> versions.getOrDefault(key, baseVersion));
+        }
+
+        /**
+         * Broken invariants of the index and versions, checked under the read lock: every
+         * row has a key, every key maps to the first row carrying it, nothing else is
+         * indexed, and no version is ahead of the last one handed out. Empty when the
+         * table is consistent.
+         */
+        public List<String> inconsistencies() {
+            long stamp = rowsLock.readLock();
+            try {
+                List<String> problems = new ArrayList<>();
+                Map<String, Integer> first = new HashMap<>();
+                for (int i = 0; i < rows.size(); i++) {
+                    String[] row = rows.get(i);
+                    if (row == null || !isRow(row)) {
+                        problems.add("row " + i + " has no key");
+                    } else {
+                        first.putIfAbsent(row[0], i);
+                    }
+                }
+                for (Map.Entry<String, Integer> entry : first.entrySet()) {
+                    Integer indexed = firstIndex.get(entry.getKey());
+                    if (!entry.getValue().equals(indexed)) {
+                        problems.add(entry.getKey() + " is first at row " + entry.getValue() + " but indexed at " + indexed);
+                    }
+                }
+                for (String key : firstIndex.keySet()) {
+                    if (!first.containsKey(key)) problems.add(key + " is indexed but has no row");
+                }
+                for (Map.Entry<String, Long> entry : versions.entrySet()) {
+                    if (entry.getValue() > sequence) {
+                        problems.add(entry.getKey() + " has version " + entry.getValue() + " past " + sequence);
+                    }
+                }
+                return problems;
+            } finally {
+                rowsLock.unlockRead(stamp);
+            }
+        }
+
+        // Same effect as appending the line to the file
+        public void append(String[] row) throws IOException {
+            synchronized (stripe(row[0])) {
+                synchronized (this) {
+                    if (log != null) log.append(row);
+                    long stamp = rowsLock.writeLock();
+                    try {
+                        add(row);
+                    } finally {
+                        unlockAndFire(stamp);
+                    }
+                }
+            }
+        }
+
+        // Same effect as rewriting the first line with this key, or appending if there is none
+        public void upsert(String[] row) throws IOException {
+            synchronized (stripe(row[0])) {
+                putLogged(row);
+            }
+        }
+
+        /**
+         * Replaces the key's row, or adds it, only if the key is still at the expected
+         * version. Returns false, changing nothing, when someone changed it in between.
+         */
+        public boolean compareAndSet(String key, long expectedVersion, String[] row) throws IOException {
+            synchronized (stripe(key)) {
+                synchronized (this) {
+                    if (version(key) != expectedVersion) {
+                        return false;
+                    }
+                    putLogged(row);
+                    return true;
+                }
+            }
+        }
+
+        // The change is computed outside the table monitor and retried if a transaction
+        // changed the row meanwhile; other writers of the key wait on its stripe
+        public boolean update(String key, UnaryOperator<String[]> change) throws IOException {
+            synchronized (stripe(key)) {
+                while (true) {
+                    long version = version(key);
+                    String[] current = get(key);
+                    if (current == null) {
+                        return false;
+                    }
+                    String[] row = change.apply(current);
+                    synchronized (this) {
+                        if (version(key) == version) {
+                            putLogged(row);
+                            return true;
+                        }
+                    }
+                }
+            }
+        }
+
+        // Same effect as dropping every line that starts with "key|"
+        public int delete(String key) throws IOException {
+            synchronized (stripe(key)) {
+                synchronized (this) {
+                    if (get(key) == null) {
+                        return 0;
+                    }
+                    if (log != null) log.delete(key);
+                    long stamp = rowsLock.writeLock();
+                    try {
+                        return remove(key);
+                    } finally {
+                        unlockAndFire(stamp);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Rewrites the flat file from the rows and empties the log. Returns the rows now in
+         * the file, or null when nothing had changed.
+         */
+        public List<String[]> compact() throws IOException {
+            synchronized (compactionLock) {
+                MutationLog current;
+                List<String[]> snapshot;
+                long flatLength;
+                long flatModified;
+                synchronized (this) {
+                    if (log == null) return null;
+                    log.carryOver();
+                    if (log.isEmpty()) return null;
+                    // Lines another program added since the last sync must not be overwritten
+                    if (!matchesFile()) return null;
+                    log.rotate();
+                    current = log;
+                    snapshot = all();
+                    flatLength = knownLength;
+                    flatModified = knownModified;
+                }
+                // Checked again just before the file is replaced; an append in between
+                // leaves the records in the old log for the next run
+                long length = current.compact(snapshot, flatLength, flatModified);
+                if (length < 0) return null;
+                synchronized (this) {
+                    // Only the rewrite itself; lines appended since are left to the next sync
+                    remember(length);
+                }
+                return snapshot;
+            }
+        }
+
+        // The rows when they match the flat file, i.e. nothing is waiting in the log and
+        // no other program wrote to the file since the last sync
+        synchronized List<String[]> rowsIfCompacted() throws IOException {
+            return log != null && log.isEmpty() && matchesFile() ? all() : null;
+        }
+
+        // True while the flat file is the one seen at the last sync or compaction
+        synchronized boolean matchesFile() {
+            return file.length() == knownLength && file.lastModified() == knownModified;
+        }
+
+        private Object stripe(String key) {
+            return stripes[(key.hashCode() & 0x7fffffff) % STRIPES];
+        }
+
+        private <T> T read(Supplier<T> reader) {
+            long stamp = rowsLock.tryOptimisticRead();
+            if (stamp != 0) {
+                try {
+                    T value = reader.get();
+                    if (rowsLock.validate(stamp)) {
+                        return value;
+                    }
+                } catch (RuntimeException e) {
+                    // Torn read of a structure being changed; retried under the read lock
+                }
+            }
+            stamp = rowsLock.readLock();
+            try {
+                return reader.get();
+            } finally {
+                rowsLock.unlockRead(stamp);
+            }
+        }
+
+        // Logs and applies an upsert under the table monitor
+        private void putLogged(String[] row) throws IOException {
+            synchronized (this) {
+                if (log != null) log.upsert(row);
+                long stamp = rowsLock.writeLock();
+                try {
+                    put(row);
+                } finally {
+                    unlockAndFire(stamp);
+                }
+            }
+        }
+
+        private void unlockAndFire(long stamp) {
+            rowsLock.unlockWrite(stamp);
+            if (pendingEvents.isEmpty()) return;
+            List<Runnable> events = new ArrayList<>(pendingEvents);
+            pendingEvents.clear();
+            for (Runnable event : events) event.run();
+        }
+
+        // The primitives below run under the write lock
+
+        // Starts a load or reload; every version from before is void
+        private void clear() {
+            rows.clear();
+            firstIndex.clear();
+            versions.clear();
+            baseVersion = ++sequence;
+            changes++;
+            loading = true;
+            pendingEvents.add(() -> {
+                for (Listener listener : listeners) listener.reloaded();
+            });
+        }
+
+        private void apply(char op, String[] row, String key) {
+            if (op == MutationLog.APPEND) add(row);
+            else if (op == MutationLog.UPSERT) put(row);
+            else remove(key);
+        }
+
+        // A line without a key, such as "|||" or blanks, cannot be looked up or changed;
+        // loads, syncs and log replay skip it instead of failing on it
+        static boolean isRow(String[] row) {
+            return row.length > 0 && !row[0].isBlank();
+        }
+
+        private void add(String[] row) {
+            if (!isRow(row)) return;
+            rows.add(row);
+            changes++;
+            int index = rows.size() - 1;
+            if (firstIndex.putIfAbsent(row[0], index) == null && !loading) {
+                versions.put(row[0], ++sequence);
+            }
+            if (!loading) {
+                pendingEvents.add(() -> {
+                    for (Listener listener : listeners) listener.rowsInserted(index, index);
+                });
+            }
+        }
+
+        private void put(String[] row) {
+            if (!isRow(row)) return;
+            Integer index = firstIndex.get(row[0]);
+            if (index == null) {
+                add(row);
+                return;
+            }
+            rows.set(index, row);
+            changes++;
+            if (!loading) {
+                versions.put(row[0], ++sequence);
+                pendingEvents.add(() -> {
+                    for (Listener listener : listeners) listener.rowUpdated(index);
+                });
+            }
+        }
+
+        // From the end, so every reported index is still valid when its event arrives
+        private int remove(String key) {
+            int removed = 0;
+            int lowest = -1;
+            for (int i = rows.size() - 1; i >= 0; i--) {
+                if (rows.get(i)[0].equals(key)) {
+                    rows.remove(i);
+                    removed++;
+                    lowest = i;
+                    if (!loading) {
+                        int index = i;
+                        pendingEvents.add(() -> {
+                            for (Listener listener : listeners) listener.rowDeleted(index);
+                        });
+                    }
+                }
+            }
+            if (removed > 0) {
+                changes++;
+                // Rows before the first removed one kept their place; a key whose first row
+                // moved down is met at its new place first, while it still maps further on
+                firstIndex.remove(key);
+                for (int i = lowest; i < rows.size(); i++) {
+                    String other = rows.get(i)[0];
+                    Integer first = firstIndex.get(other);
+                    if (first != null && first > i) firstIndex.put(other, i);
+                }
+                if (!loading) {
+                    versions.put(key, ++sequence);
+                }
+            }
+            return removed;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+import java.util.*;
+
+/**
+ * Maps string IDs to dense ints (0, 1, 2, ...) and back, so the indexes built on top
+ * of it can use primitive arrays instead of maps keyed by String.
+ */
+public class IdDictionary {
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> names = new ArrayList<>();
+
+    public synchronized int intern(String name) {
+        Integer id = ids.get(name);
+        if (id == null) {
+            id = names.size();
+            ids.put(name, id);
+            names.add(name);
+        }
+        return id;
+    }
+
+    // Returns -1 when the name was never interned
+    public synchronized int id(String name) {
+        Integer id = ids.get(name);
+        return id == null ? -1 : id;
+    }
+
+    public synchronized String name(int id) {
+        return names.get(id);
+    }
+
+    public synchronized int size() {
+        return names.size();
+    }
+
+    public synchronized void clear() {
+        ids.clear();
+        names.clear();
+    }
+}
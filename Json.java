@@ -0,0 +1,58 @@
+import java.util.Collection;
+
+/**
+ * The little JSON the headless entry points write: strings, numbers and arrays of
+ * strings, appended to a StringBuilder. Non-finite numbers become null.
+ */
+public final class Json {
+    private Json() {
+    }
+
+    public static StringBuilder string(StringBuilder out, String value) {
+        if (value == null) {
+            return out.append("null");
+        }
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': out.append("\\\""); break;
+                case '\\': out.append("\\\\"); break;
+                case '\n': out.append("\\n"); break;
+                case '\r': out.append("\\r"); break;
+                case '\t': out.append("\\t"); break;
+                default:
+                    if (c < 0x20) out.append(String.format("\\u%04x", (int) c));
+                    else out.append(c);
+            }
+        }
+        return out.append('"');
+    }
+
+    public static StringBuilder number(StringBuilder out, double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return out.append("null");
+        }
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return out.append((long) value);
+        }
+        return out.append(value);
+    }
+
+    public static StringBuilder strings(StringBuilder out, Collection<String> values) {
+        out.append('[');
+        boolean first = true;
+        for (String value : values) {
+            if (!first) out.append(',');
+            string(out, value);
+            first = false;
+        }
+        return out.append(']');
+    }
+
+    // Starts a member of an object; the caller writes the value
+    public static StringBuilder key(StringBuilder out, String name) {
+        if (out.length() > 0 && out.charAt(out.length() - 1) != '{') out.append(',');
+        return string(out, name).append(':');
+    }
+}
@@ -0,0 +1,292 @@
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.*;
+
+/**
+ * Where the time goes: a latency histogram per stage of loading, recommending and
+ * saving, and read counters per kind of file open. Recording takes a few atomic adds
+ * and no lock, so it stays on in production.
+ *
+ *     long start = System.nanoTime();
+ *     ...
+ *     Metrics.GRAPH_BUILD.record(start);
+ *
+ * The numbers are shown in the Diagnostics tab and, once registerMBeans ran, under
+ * teammanager:type=Stage and teammanager:type=FileReads in any JMX console.
+ */
+public final class Metrics {
+    private static final List<Stage> STAGES = new CopyOnWriteArrayList<>();
+    private static final List<FileReads> FILE_READS = new CopyOnWriteArrayList<>();
+    private static boolean registered;
+
+    // Loading and saving
+    public static final Stage STORE_LOAD = stage("store load");
+    public static final Stage TEXT_PARSE = stage("text parse");
+    public static final Stage SNAPSHOT_READ = stage("snapshot read");
+    public static final Stage LOG_REPLAY = stage("log replay");
+    public static final Stage FILE_SYNC = stage("file sync");
+    public static final Stage COMMIT = stage("commit");
+    public static final Stage COMPACTION = stage("compaction");
+    // Recommending
+    public static final Stage GRAPH_BUILD = stage("buildGraph");
+    public static final Stage START_USER = stage("findBestStartUser");
+    public static final Stage TRAVERSAL = stage("traversal");
+    public static final Stage SELECTION = stage("selectTeamMembers");
+    public static final Stage OPTIMAL_SEARCH = stage("branch & bound search");
+    // Scoring
+    public static final Stage SKILL_MATCH = stage("hitungSkillMatchScore");
+    public static final Stage AVAILABILITY = stage("hitungAvailabilityBonus");
+    public static final Stage SUCCESS_RATE = stage("hitungSuccessRate");
+    public static final Stage COMPATIBILITY = stage("hitungCompatibility");
+    public static final Stage COLLAB_BONUS = stage("hitungCollabBonus");
+    public static final Stage PAIR_SCORES = stage("hitungUserPairScore (all pairs)");
+
+    public static final FileReads DATA_FILE_LOAD = fileReads("data file load");
+    public static final FileReads DATA_FILE_SYNC = fileReads("data file sync");
+    public static final FileReads TAIL_CHECK = fileReads("data file tail check");
+    public static final FileReads SNAPSHOT = fileReads("snapshot");
+    public static final FileReads MUTATION_LOG = fileReads("mutation log");
+    public static final FileReads JOURNAL = fileReads("transaction journal");
+    public static final FileReads TEAM_COUNTER = fileReads("team counter");
+
+    private Metrics() {
+    }
+
+    public static Stage stage(String name) {
+        Stage stage = new Stage(name);
+        STAGES.add(stage);
+        return stage;
+    }
+
+    public static FileReads fileReads(String operation) {
+        FileReads reads = new FileReads(operation);
+        FILE_READS.add(reads);
+        return reads;
+    }
+
+    public static List<Stage> stages() {
+        return Collections.unmodifiableList(STAGES);
+    }
+
+    public static List<FileReads> fileReads() {
+        return Collections.unmodifiableList(FILE_READS);
+    }
+
+    public static void reset() {
+        for (Stage stage : STAGES) stage.reset();
+        for (FileReads reads : FILE_READS) reads.reset();
+    }
+
+    /** Registers one MXBean per stage and per file operation with the platform MBean server; runs once. */
+    public static synchronized void registerMBeans() {
+        if (registered) return;
+        registered = true;
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            for (Stage stage : STAGES) {
+                server.registerMBean(stage, new ObjectName("teammanager", quoted("type", "Stage", "name", stage.name)));
+            }
+            for (FileReads reads : FILE_READS) {
+                server.registerMBean(reads, new ObjectName("teammanager", quoted("type", "FileReads", "name", reads.operation)));
+            }
+        } catch (JMException e) {
+            System.err.println("Metrics not registered with JMX: " + e.getMessage());
+        }
+    }
+
+    private static Hashtable<String, String> quoted(String typeKey, String type, String nameKey, String name) {
+        Hashtable<String, String> properties = new Hashtable<>();
+        properties.put(typeKey, type);
+        properties.put(nameKey, ObjectName.quote(name));
+        return properties;
+    }
+
+    public interface StageMXBean {
+        String getName();
+        long getCount();
+        double getMeanMillis();
+        double getP50Millis();
+        double getP99Millis();
+        double getMaxMillis();
+        void reset();
+    }
+
+    public interface FileReadsMXBean {
+        String getOperation();
+        long getReads();
+        long getBytesRead();
+        void reset();
+    }
+
+    /** Latency histogram of one stage. */
+    public static final class Stage implements StageMXBean {
+        private final String name;
+        private final Histogram histogram = new Histogram();
+
+        private Stage(String name) {
+            this.name = name;
+        }
+
+        /** Records the time since startNanos, a System.nanoTime() taken when the stage began. */
+        public void record(long startNanos) {
+            histogram.record(System.nanoTime() - startNanos);
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public long getCount() {
+            return histogram.count();
+        }
+
+        @Override
+        public double getMeanMillis() {
+            long count = histogram.count();
+            return count == 0 ? 0 : histogram.sum() / 1e6 / count;
+        }
+
+        @Override
+        public double getP50Millis() {
+            return histogram.percentile(50) / 1e6;
+        }
+
+        @Override
+        public double getP99Millis() {
+            return histogram.percentile(99) / 1e6;
+        }
+
+        @Override
+        public double getMaxMillis() {
+            return histogram.max() / 1e6;
+        }
+
+        @Override
+        public void reset() {
+            histogram.reset();
+        }
+    }
+
+    /** Files opened for one kind of read, and the bytes read from them. */
+    public static final class FileReads implements FileReadsMXBean {
+        private final String operation;
+        private final LongAdder reads = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+
+        private FileReads(String operation) {
+            this.operation = operation;
+        }
+
+        public void opened() {
+            reads.increment();
+        }
+
+        public void read(long count) {
+            if (count > 0) bytes.add(count);
+        }
+
+        @Override
+        public String getOperation() {
+            return operation;
+        }
+
+        @Override
+        public long getReads() {
+            return reads.sum();
+        }
+
+        @Override
+        public long getBytesRead() {
+            return bytes.sum();
+        }
+
+        @Override
+        public void reset() {
+            reads.reset();
+            bytes.reset();
+        }
+    }
+
+    /**
+     * Nanosecond histogram with HdrHistogram's bucketing: 16 linear sub-buckets per power
+     * of two, so every recorded value is known to within 1/16 (about 6%) up to the
+     * longest value a long holds, in under a thousand counters.
+     */
+    static final class Histogram {
+        private static final int SUB_BITS = 4;
+        private static final int SUB_BUCKETS = 1 << SUB_BITS;
+        private static final int BUCKETS = (64 - SUB_BITS + 1) * SUB_BUCKETS;
+
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private final AtomicLong max = new AtomicLong();
+
+        void record(long nanos) {
+            if (nanos < 0) nanos = 0;
+            counts.incrementAndGet(bucket(nanos));
+            count.increment();
+            sum.add(nanos);
+            if (nanos > max.get()) max.accumulateAndGet(nanos, Math::max);
+        }
+
+        long count() {
+            return count.sum();
+        }
+
+        long sum() {
+            return sum.sum();
+        }
+
+        long max() {
+            return max.get();
+        }
+
+        // Upper end of the bucket holding the percentile, capped at the maximum; 0 when empty
+        long percentile(double percentile) {
+            long total = 0;
+            long[] snapshot = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) {
+                snapshot[i] = counts.get(i);
+                total += snapshot[i];
+            }
+            if (total == 0) return 0;
+            long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += snapshot[i];
+                if (seen >= rank) return Math.min(highest(i), max());
+            }
+            return max();
+        }
+
+        void reset() {
+            for (int i = 0; i < BUCKETS; i++) counts.set(i, 0);
+            count.reset();
+            sum.reset();
+            max.set(0);
+        }
+
+        // Values below 16 get a bucket each; above, the top five bits pick the bucket
+        static int bucket(long value) {
+            if (value < SUB_BUCKETS) return (int) value;
+            int exponent = 63 - Long.numberOfLeadingZeros(value);
+            int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+            return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+        }
+
+        static long highest(int bucket) {
+            if (bucket < SUB_BUCKETS) return bucket;
+            int exponent = bucket / SUB_BUCKETS + SUB_BITS - 1;
+            long sub = bucket % SUB_BUCKETS;
+            long lowest = (SUB_BUCKETS + sub) << (exponent - SUB_BITS);
+            return lowest + (1L << (exponent - SUB_BITS)) - 1;
+        }
+    }
+}
@@ -0,0 +1,359 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Append-only write-ahead log of row changes for one data file, kept next to it as
+ * "<file>.log". One record per line:
+ *
+ *     A|<row>    append the row
+ *     U|<row>    replace the first row with the same key, or append it
+ *     D|<key>    drop every row with the key
+ *     T|<id>|<n> the next n records belong to transaction id and apply together
+ *
+ * Every record is forced to disk before the change is applied in memory, so a single
+ * edit costs one small append whatever the size of the file. The flat file itself is
+ * only rewritten by {@link #compact}, which works in this order:
+ *
+ *  1. the log is renamed to "<file>.log.old" and a fresh log is started,
+ *  2. the snapshot is written to "<file>.tmp" and forced to disk,
+ *  3. the old log is deleted,
+ *  4. the snapshot is moved over the flat file.
+ *
+ * Other programs may append to the flat file at any time. Just before step 3 the
+ * file is checked against the length and modification time the caller last synced;
+ * if it changed, the snapshot is deleted and the old log kept, so its records stay
+ * pending until a compaction that includes the appended lines. Lines that still reach
+ * the replaced file, because they were appended after that check or by a program that
+ * opened the file before step 4, are copied onto the new one by {@link #carryOver}.
+ *
+ * {@link #recover} finishes or rolls back an interrupted compaction at startup: while
+ * the old log exists the snapshot may be incomplete and is discarded; once it is gone
+ * the snapshot is complete and only the final move is missing.
+ */
+public class MutationLog implements Closeable {
+    public static final char APPEND = 'A';
+    public static final char UPSERT = 'U';
+    public static final char DELETE = 'D';
+    public static final char TRANSACTION = 'T';
+
+    private final File dataFile;
+    private final File logFile;
+    private final File oldLogFile;
+    private final File snapshotFile;
+    private FileChannel channel;
+    // The flat file the last compaction replaced, and how much of it the new one holds
+    private FileChannel replaced;
+    private long replacedCopied;
+
+    public MutationLog(File dataFile) {
+        this.dataFile = dataFile;
+        this.logFile = new File(dataFile.getPath() + ".log");
+        this.oldLogFile = new File(dataFile.getPath() + ".log.old");
+        this.snapshotFile = new File(dataFile.getPath() + ".tmp");
+    }
+
+    /** One replayed record; row is the parsed row for A and U, key is set for D. */
+    public interface Replay {
+        void apply(char op, String[] row, String key);
+    }
+
+    /**
+     * Repairs the files after a crash and returns the logs to replay on top of the flat
+     * file, oldest first.
+     */
+    public List<File> recover() throws IOException {
+        List<File> pending = new ArrayList<>();
+        if (oldLogFile.exists()) {
+            Files.deleteIfExists(snapshotFile.toPath());
+            truncateTornTail(oldLogFile);
+            pending.add(oldLogFile);
+        } else if (snapshotFile.exists()) {
+            Files.move(snapshotFile.toPath(), dataFile.toPath(),
+                       StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        if (logFile.exists()) {
+            truncateTornTail(logFile);
+            pending.add(logFile);
+        }
+        return pending;
+    }
+
+    /**
+     * The logs recover would return, for a reader that may not write to the data
+     * directory. Fails instead of repairing: when a compaction stopped after its old
+     * log was deleted, or when a log ends in a torn record.
+     */
+    public List<File> pendingLogs() throws IOException {
+        if (!oldLogFile.exists() && snapshotFile.exists()) {
+            throw new IOException(dataFile.getName() + " has an unfinished compaction (" + snapshotFile.getName() + ")");
+        }
+        List<File> pending = new ArrayList<>();
+        if (oldLogFile.exists()) pending.add(oldLogFile);
+        if (logFile.exists()) pending.add(logFile);
+        for (File log : pending) {
+            if (completeLength(log) < log.length()) {
+                throw new IOException(log.getName() + " ends in a partly written record");
+            }
+        }
+        return pending;
+    }
+
+    /** Replays every record of the log and returns the IDs of the transactions it held. */
+    public static Set<Long> replay(File log, Replay replay) throws IOException {
+        Set<Long> transactions = new HashSet<>();
+        Metrics.MUTATION_LOG.opened();
+        Metrics.MUTATION_LOG.read(log.length());
+        RecordTokenizer fields = new RecordTokenizer();
+        try (BufferedReader reader = new BufferedReader(new FileReader(log))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.length() > 2 && line.charAt(0) == TRANSACTION && line.charAt(1) == '|') {
+                    String[] header = line.split("\\|");
+                    int count = Integer.parseInt(header[2]);
+                    List<String> records = new ArrayList<>(count);
+                    while (records.size() < count && (line = reader.readLine()) != null) {
+                        records.add(line);
+                    }
+                    if (records.size() < count) break;
+                    for (String record : records) {
+                        replayRecord(record, replay, fields);
+                    }
+                    transactions.add(Long.parseLong(header[1]));
+                } else {
+                    replayRecord(line, replay, fields);
+                }
+            }
+        }
+        return transactions;
+    }
+
+    /** Applies one A, U or D record line; anything else is ignored. */
+    public static void replayRecord(String line, Replay replay) {
+        replayRecord(line, replay, new RecordTokenizer());
+    }
+
+    static void replayRecord(String line, Replay replay, RecordTokenizer fields) {
+        if (line.length() < 2 || line.charAt(1) != '|') return;
+        switch (line.charAt(0)) {
+            case APPEND:
+            case UPSERT:
+                if (line.length() > 2) {
+                    fields.tokenize(line, 2, line.length());
+                    replay.apply(line.charAt(0), fields.row(), null);
+                }
+                break;
+            case DELETE:
+                replay.apply(DELETE, null, line.substring(2));
+                break;
+            default:
+                break;
+        }
+    }
+
+    public static String record(char op, String[] row) {
+        return op + "|" + String.join("|", row);
+    }
+
+    public static String deleteRecord(String key) {
+        return DELETE + "|" + key;
+    }
+
+    public synchronized void append(String[] row) throws IOException {
+        write(record(APPEND, row));
+    }
+
+    public synchronized void upsert(String[] row) throws IOException {
+        write(record(UPSERT, row));
+    }
+
+    public synchronized void delete(String key) throws IOException {
+        write(deleteRecord(key));
+    }
+
+    /** Writes the records as one group with a single force; replay applies all of them or none. */
+    public synchronized void writeTransaction(long id, List<String> records) throws IOException {
+        StringBuilder group = new StringBuilder();
+        group.append(TRANSACTION).append('|').append(id).append('|').append(records.size());
+        for (String record : records) {
+            group.append('\n').append(record);
+        }
+        write(group.toString());
+    }
+
+    /** Bytes currently in the live log; 0 means the flat file is up to date. */
+    public synchronized long size() throws IOException {
+        return channel != null ? channel.size() : (logFile.exists() ? logFile.length() : 0);
+    }
+
+    /** The logs that hold records not yet in the flat file, oldest first. */
+    public synchronized List<File> logs() {
+        List<File> logs = new ArrayList<>();
+        if (oldLogFile.exists()) logs.add(oldLogFile);
+        if (logFile.exists()) logs.add(logFile);
+        return logs;
+    }
+
+    /** True when neither the live log nor a log left by a failed compaction holds records. */
+    public synchronized boolean isEmpty() throws IOException {
+        return size() == 0 && !oldLogFile.exists();
+    }
+
+    /**
+     * Moves the live log aside and starts a fresh one. Must be called while the caller
+     * holds the lock that orders writes, together with taking the snapshot.
+     */
+    public synchronized void rotate() throws IOException {
+        close();
+        if (oldLogFile.exists()) {
+            // A previous compaction failed or gave up after rotating; keep its records in order
+            if (logFile.exists()) {
+                appendFile(logFile, oldLogFile);
+                Files.delete(logFile.toPath());
+            }
+        } else if (logFile.exists()) {
+            Files.move(logFile.toPath(), oldLogFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    /**
+     * Writes the rows taken at {@link #rotate} as the new flat file and drops the old log.
+     * Returns the length of the rewritten rows, or -1, leaving the flat file and the old
+     * log untouched, when the flat file no longer has the given length and modification
+     * time.
+     */
+    public long compact(List<String[]> snapshot, long flatLength, long flatModified) throws IOException {
+        try (FileOutputStream out = new FileOutputStream(snapshotFile);
+             Writer writer = new BufferedWriter(new OutputStreamWriter(out, Charset.defaultCharset()))) {
+            for (String[] row : snapshot) {
+                writer.write(String.join("|", row));
+                writer.write('\n');
+            }
+            writer.flush();
+            out.getFD().sync();
+        }
+        // Opened before the move, so the replaced file can still be read afterwards
+        FileChannel previous = dataFile.exists()
+                ? FileChannel.open(dataFile.toPath(), StandardOpenOption.READ) : null;
+        long length;
+        try {
+            if (dataFile.length() != flatLength || dataFile.lastModified() != flatModified) {
+                Files.delete(snapshotFile.toPath());
+                if (previous != null) previous.close();
+                return -1;
+            }
+            length = snapshotFile.length();
+            Files.deleteIfExists(oldLogFile.toPath());
+            Files.move(snapshotFile.toPath(), dataFile.toPath(),
+                       StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            if (previous != null) previous.close();
+            throw e;
+        }
+        synchronized (this) {
+            carryOver();
+            replaced = previous;
+            replacedCopied = flatLength;
+            copyReplaced();
+        }
+        return length;
+    }
+
+    /**
+     * Copies onto the flat file whatever other programs wrote to the file the last
+     * compaction replaced since it was last checked, and stops watching that file. Kept
+     * open until the next compaction, it also catches writers that opened it just
+     * before the move.
+     */
+    public synchronized void carryOver() throws IOException {
+        if (replaced == null) return;
+        try {
+            copyReplaced();
+        } finally {
+            replaced.close();
+            replaced = null;
+        }
+    }
+
+    private void copyReplaced() throws IOException {
+        if (replaced == null) return;
+        long end = replaced.size();
+        if (end <= replacedCopied) return;
+        try (FileChannel out = FileChannel.open(dataFile.toPath(), StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            while (replacedCopied < end) {
+                replacedCopied += replaced.transferTo(replacedCopied, end - replacedCopied, out);
+            }
+            out.force(false);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    private void write(String record) throws IOException {
+        if (channel == null) {
+            channel = FileChannel.open(logFile.toPath(), StandardOpenOption.CREATE,
+                                       StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+        ByteBuffer bytes = ByteBuffer.wrap((record + "\n").getBytes(Charset.defaultCharset()));
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        channel.force(false);
+    }
+
+    // A crash in the middle of a write leaves a partial line or transaction group at the
+    // end; it never took effect, and later records must not be read as part of it
+    private static void truncateTornTail(File log) throws IOException {
+        long safeEnd = completeLength(log);
+        if (safeEnd < log.length()) {
+            try (RandomAccessFile file = new RandomAccessFile(log, "rw")) {
+                file.setLength(safeEnd);
+            }
+        }
+    }
+
+    // Length of the log up to the end of its last complete line or transaction group
+    private static long completeLength(File log) throws IOException {
+        long safeEnd = 0;
+        long position = 0;
+        int missing = 0;
+        Metrics.MUTATION_LOG.opened();
+        Metrics.MUTATION_LOG.read(log.length());
+        try (InputStream in = new BufferedInputStream(new FileInputStream(log))) {
+            StringBuilder head = new StringBuilder();
+            int b;
+            while ((b = in.read()) != -1) {
+                position++;
+                if (b != '\n') {
+                    if (head.length() < 32) head.append((char) b);
+                    continue;
+                }
+                if (missing > 0) {
+                    missing--;
+                } else if (head.length() > 2 && head.charAt(0) == TRANSACTION && head.charAt(1) == '|') {
+                    missing = Integer.parseInt(head.substring(head.lastIndexOf("|") + 1));
+                }
+                if (missing == 0) safeEnd = position;
+                head.setLength(0);
+            }
+        }
+        return safeEnd;
+    }
+
+    private static void appendFile(File from, File to) throws IOException {
+        try (InputStream in = new FileInputStream(from);
+             FileOutputStream out = new FileOutputStream(to, true)) {
+            in.transferTo(out);
+            out.getFD().sync();
+        }
+    }
+}
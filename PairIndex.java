@@ -0,0 +1,281 @@
+import java.util.*;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Collaboration metrics aggregated per unordered user pair. Every line of the
+ * collaboration file is merged into one slot when it is added: the counts are
+ * summed, while success rate and compatibility keep the value of the first line
+ * for that pair (the same values the old file scans returned).
+ *
+ * Slots live in an open addressing table keyed by the two dense user IDs packed
+ * into one long, so a lookup is a couple of array reads. Writers take a write lock;
+ * readers use an optimistic read and only fall back to the read lock when a write
+ * happened in between, so parallel scoring does not serialize on the index. Slots
+ * move when the table grows or a pair is removed, so they never leave the index:
+ * every lookup returns values read under one stamp.
+ */
+public class PairIndex {
+    public static final double DEFAULT_SUCCESS_RATE = 0.5;
+    public static final double DEFAULT_COMPATIBILITY = 0.5;
+
+    private static final long EMPTY = -1L;
+
+    private final IdDictionary userIds;
+    private final StampedLock lock = new StampedLock();
+
+    private Slots table = new Slots(16);
+    private int size;
+
+    /** The metrics of one pair, read together; found is false when the two never collaborated. */
+    public static final class PairMetrics {
+        public final boolean found;
+        public final double successRate;
+        public final double compatibility;
+        public final double collabBonus;
+
+        private PairMetrics(Slots t, int slot) {
+            found = slot >= 0;
+            successRate = metric(t, slot, 0);
+            compatibility = metric(t, slot, 1);
+            collabBonus = metric(t, slot, 2);
+        }
+
+        /** UserPairScore: SuccessRate x 0.5 + Compatibility x 0.3 + CollabBonus x 0.2. */
+        public double score() {
+            return successRate * 0.5 + compatibility * 0.3 + collabBonus * 0.2;
+        }
+    }
+
+    // The arrays are swapped together on resize so a reader always sees one table
+    private static final class Slots {
+        final long[] keys;
+        final double[] counts;
+        final double[] rates;
+        final double[] compats;
+
+        Slots(int capacity) {
+            keys = new long[capacity];
+            Arrays.fill(keys, EMPTY);
+            counts = new double[capacity];
+            rates = new double[capacity];
+            compats = new double[capacity];
+            Arrays.fill(rates, Double.NaN);
+            Arrays.fill(compats, Double.NaN);
+        }
+    }
+
+    public PairIndex(IdDictionary userIds) {
+        this.userIds = userIds;
+    }
+
+    public void load(List<String[]> rows) {
+        long stamp = lock.writeLock();
+        try {
+            table = new Slots(Math.max(16, Integer.highestOneBit(Math.max(1, rows.size())) * 4));
+            size = 0;
+            for (String[] row : rows) {
+                addLocked(row);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // Merges one collaboration line into its pair slot; malformed lines are ignored
+    public void add(String[] row) {
+        long stamp = lock.writeLock();
+        try {
+            addLocked(row);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // Re-aggregates one pair after its lines were edited or deleted
+    public void rebuildPair(String user1, String user2, List<String[]> rows) {
+        int a = userIds.id(user1);
+        int b = userIds.id(user2);
+        if (a < 0 || b < 0) return;
+
+        long stamp = lock.writeLock();
+        try {
+            remove(key(a, b));
+            for (String[] row : rows) {
+                String[] users = row[0].split(",");
+                if (users.length < 2) continue;
+                if ((users[0].equals(user1) && users[1].equals(user2)) ||
+                    (users[0].equals(user2) && users[1].equals(user1))) {
+                    addLocked(row);
+                }
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /** Metrics of the pair; users who never collaborated get the defaults. */
+    public PairMetrics metrics(String user1, String user2) {
+        return metrics(userIds.id(user1), userIds.id(user2));
+    }
+
+    /** Same as {@link #metrics(String, String)} for users already given dense IDs. */
+    public PairMetrics metrics(int user1, int user2) {
+        long key = user1 < 0 || user2 < 0 ? EMPTY : key(user1, user2);
+        long stamp = lock.tryOptimisticRead();
+        PairMetrics metrics = metrics(table, key);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                metrics = metrics(table, key);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return metrics;
+    }
+
+    /** UserPairScore of two users: SuccessRate x 0.5 + Compatibility x 0.3 + CollabBonus x 0.2. */
+    public double pairScore(int user1, int user2) {
+        long key = user1 < 0 || user2 < 0 ? EMPTY : key(user1, user2);
+        long stamp = lock.tryOptimisticRead();
+        double score = pairScore(table, key);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                score = pairScore(table, key);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return score;
+    }
+
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private static double pairScore(Slots t, long key) {
+        int slot = key == EMPTY ? -1 : indexOf(t, key);
+        return metric(t, slot, 0) * 0.5 + metric(t, slot, 1) * 0.3 + metric(t, slot, 2) * 0.2;
+    }
+
+    private static PairMetrics metrics(Slots t, long key) {
+        return new PairMetrics(t, key == EMPTY ? -1 : indexOf(t, key));
+    }
+
+    private static double metric(Slots t, int slot, int metric) {
+        switch (metric) {
+            case 0:
+                return slot < 0 || Double.isNaN(t.rates[slot]) ? DEFAULT_SUCCESS_RATE : t.rates[slot];
+            case 1:
+                return slot < 0 || Double.isNaN(t.compats[slot]) ? DEFAULT_COMPATIBILITY : t.compats[slot];
+            default:
+                return slot < 0 ? 0.0 : Math.min(1.0, t.counts[slot] * 0.2);
+        }
+    }
+
+    private void addLocked(String[] row) {
+        String[] users = row[0].split(",");
+        if (users.length < 2) return;
+
+        double count = 0.0;
+        double rate = Double.NaN;
+        double compat = Double.NaN;
+        try {
+            if (row.length >= 2) count = Double.parseDouble(row[1].trim());
+            if (row.length >= 3) rate = Double.parseDouble(row[2]);
+            if (row.length >= 4) compat = Double.parseDouble(row[3]);
+        } catch (NumberFormatException e) {
+            return;
+        }
+
+        int slot = slotFor(key(userIds.intern(users[0]), userIds.intern(users[1])));
+        Slots t = table;
+        t.counts[slot] += count;
+        if (Double.isNaN(t.rates[slot])) t.rates[slot] = rate;
+        if (Double.isNaN(t.compats[slot])) t.compats[slot] = compat;
+    }
+
+    private static long key(int a, int b) {
+        int lo = Math.min(a, b);
+        int hi = Math.max(a, b);
+        return ((long) lo << 32) | (hi & 0xFFFFFFFFL);
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static int indexOf(Slots t, long key) {
+        long[] keys = t.keys;
+        int mask = keys.length - 1;
+        for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+            if (keys[i] == key) return i;
+            if (keys[i] == EMPTY) return -1;
+        }
+    }
+
+    private int slotFor(long key) {
+        if ((size + 1) * 2 > table.keys.length) {
+            grow();
+        }
+        long[] keys = table.keys;
+        int mask = keys.length - 1;
+        int i = hash(key) & mask;
+        while (keys[i] != EMPTY) {
+            if (keys[i] == key) return i;
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        size++;
+        return i;
+    }
+
+    private void grow() {
+        Slots old = table;
+        Slots t = new Slots(old.keys.length * 2);
+        int mask = t.keys.length - 1;
+        for (int i = 0; i < old.keys.length; i++) {
+            if (old.keys[i] == EMPTY) continue;
+            int slot = hash(old.keys[i]) & mask;
+            while (t.keys[slot] != EMPTY) slot = (slot + 1) & mask;
+            t.keys[slot] = old.keys[i];
+            t.counts[slot] = old.counts[i];
+            t.rates[slot] = old.rates[i];
+            t.compats[slot] = old.compats[i];
+        }
+        table = t;
+    }
+
+    // Linear probing delete: shift later entries of the cluster back into the hole
+    private void remove(long key) {
+        Slots t = table;
+        int slot = indexOf(t, key);
+        if (slot < 0) return;
+
+        int mask = t.keys.length - 1;
+        int hole = slot;
+        for (int i = (hole + 1) & mask; t.keys[i] != EMPTY; i = (i + 1) & mask) {
+            int home = hash(t.keys[i]) & mask;
+            boolean movable = hole <= i ? (home <= hole || home > i) : (home <= hole && home > i);
+            if (movable) {
+                t.keys[hole] = t.keys[i];
+                t.counts[hole] = t.counts[i];
+                t.rates[hole] = t.rates[i];
+                t.compats[hole] = t.compats[i];
+                hole = i;
+            }
+        }
+        t.keys[hole] = EMPTY;
+        t.counts[hole] = 0.0;
+        t.rates[hole] = Double.NaN;
+        t.compats[hole] = Double.NaN;
+        size--;
+    }
+}
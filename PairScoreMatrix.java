@@ -0,0 +1,146 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * UserPairScore of every pair of a set of users, stored as the upper triangle of
+ * the n x n matrix in one double[] (row i holds the pairs (i, i+1) .. (i, n-1)).
+ * Each pair is read from the index once; the metrics of that read are kept beside
+ * the score, so a pair's parts, its score and the clique score always agree even
+ * while collaborations change. Form Team scores a finished team with it. Candidate
+ * pools do not go through it: only pairs that collaborated differ from the default
+ * score, so the optimal search takes them from the collaboration edges instead.
+ *
+ * Below SEQUENTIAL_PAIRS pairs, which covers every real team, the pairs are scored
+ * on the calling thread. Larger sets are scored on the common fork-join pool. Row i
+ * has n-1-i pairs, so a task splits its row range where the remaining pair count
+ * halves rather than in the middle, which keeps the pieces the same size.
+ */
+public class PairScoreMatrix {
+    // Below this many pairs a task scores its rows itself
+    private static final int SEQUENTIAL_PAIRS = 4096;
+    // Largest triangle one double[] can hold, about 65k users
+    private static final long MAX_PAIRS = Integer.MAX_VALUE - 8;
+
+    private final int n;
+    private final double[] scores;
+    private final PairIndex.PairMetrics[] metrics;
+
+    private PairScoreMatrix(int n) {
+        long pairs = (long) n * (n - 1) / 2;
+        if (pairs > MAX_PAIRS) {
+            throw new IllegalArgumentException(n + " users have too many pairs for one matrix");
+        }
+        this.n = n;
+        this.scores = new double[(int) pairs];
+        this.metrics = new PairIndex.PairMetrics[(int) pairs];
+    }
+
+    /** Scores all pairs of users, given as dense user IDs, against the pair index. */
+    public static PairScoreMatrix compute(int[] users, PairIndex pairs) {
+        return compute(users, pairs, TeamEngine.Progress.NONE);
+    }
+
+    /** The same, reporting "Scored x of N pairs" as each task finishes its rows. */
+    public static PairScoreMatrix compute(int[] users, PairIndex pairs, TeamEngine.Progress progress) {
+        PairScoreMatrix matrix = new PairScoreMatrix(users.length);
+        if (matrix.pairCount() == 0) {
+            return matrix;
+        }
+        if (matrix.pairCount() < SEQUENTIAL_PAIRS) {
+            matrix.scoreRows(users, pairs, 0, users.length);
+            progress.report("Scored " + matrix.pairCount() + " of " + matrix.pairCount() + " pairs");
+        } else {
+            ForkJoinPool.commonPool().invoke(matrix.new Rows(users, pairs, 0, users.length, progress, new AtomicLong()));
+        }
+        return matrix;
+    }
+
+    public int size() {
+        return n;
+    }
+
+    public int pairCount() {
+        return scores.length;
+    }
+
+    /** Score of users i and j (i != j), in either order. */
+    public double get(int i, int j) {
+        return i < j ? scores[offset(i) + j - i - 1] : scores[offset(j) + i - j - 1];
+    }
+
+    /** SuccessRate, Compatibility and CollabBonus of users i and j, from the read that gave get(i, j). */
+    public PairIndex.PairMetrics metrics(int i, int j) {
+        return i < j ? metrics[offset(i) + j - i - 1] : metrics[offset(j) + i - j - 1];
+    }
+
+    /** How many of the pairs were found in the index, i.e. ever collaborated. */
+    public int indexHits() {
+        int hits = 0;
+        for (PairIndex.PairMetrics pair : metrics) {
+            if (pair.found) hits++;
+        }
+        return hits;
+    }
+
+    /** CliqueScore: the average of all pair scores, 0 for fewer than two users. */
+    public double cliqueScore() {
+        if (scores.length == 0) return 0.0;
+        double sum = 0.0;
+        for (double score : scores) sum += score;
+        return sum / scores.length;
+    }
+
+    private void scoreRows(int[] users, PairIndex pairs, int from, int to) {
+        for (int i = from; i < to; i++) {
+            int base = offset(i) - i - 1;
+            for (int j = i + 1; j < n; j++) {
+                PairIndex.PairMetrics pair = pairs.metrics(users[i], users[j]);
+                metrics[base + j] = pair;
+                scores[base + j] = pair.score();
+            }
+        }
+    }
+
+    // Index of pair (i, i+1) in the triangle
+    private int offset(int i) {
+        return (int) ((long) i * (2 * n - i - 1) / 2);
+    }
+
+    private class Rows extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] users;
+        private final PairIndex pairs;
+        private final int from;
+        private final int to;
+        private final TeamEngine.Progress progress;
+        // Pairs scored so far by all tasks of one compute call
+        private final AtomicLong scored;
+
+        Rows(int[] users, PairIndex pairs, int from, int to, TeamEngine.Progress progress, AtomicLong scored) {
+            this.users = users;
+            this.pairs = pairs;
+            this.from = from;
+            this.to = to;
+            this.progress = progress;
+            this.scored = scored;
+        }
+
+        @Override
+        protected void compute() {
+            int total = offset(to) - offset(from);
+            if (total <= SEQUENTIAL_PAIRS || to - from < 2) {
+                scoreRows(users, pairs, from, to);
+                progress.report("Scored " + scored.addAndGet(total) + " of " + scores.length + " pairs");
+                return;
+            }
+
+            int mid = from + 1;
+            int half = offset(from) + total / 2;
+            while (mid < to - 1 && offset(mid + 1) <= half) mid++;
+            invokeAll(new Rows(users, pairs, from, mid, progress, scored),
+                      new Rows(users, pairs, mid, to, progress, scored));
+        }
+    }
+}
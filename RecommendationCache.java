@@ -0,0 +1,91 @@
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Bounded LRU map from (project, algorithm, data version) to a scored recommendation.
+ * The data version is part of the key, so a change anywhere makes every older entry
+ * unreachable instead of having to find and drop it; stale entries simply age out.
+ *
+ * Values are computed outside the lock, so two threads missing on the same key at
+ * once may both compute it; the second result replaces the first.
+ */
+public class RecommendationCache {
+    private final int capacity;
+    private final Map<Key, TeamEngine.Recommendation> entries;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public RecommendationCache(int capacity) {
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<Key, TeamEngine.Recommendation>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, TeamEngine.Recommendation> eldest) {
+                return size() > RecommendationCache.this.capacity;
+            }
+        };
+    }
+
+    public TeamEngine.Recommendation get(String projectId, TeamEngine.Algorithm algorithm, long dataVersion,
+                                         Supplier<TeamEngine.Recommendation> compute) {
+        Key key = new Key(projectId, algorithm, dataVersion);
+        TeamEngine.Recommendation cached;
+        synchronized (entries) {
+            cached = entries.get(key);
+        }
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+        misses.increment();
+        TeamEngine.Recommendation computed = compute.get();
+        synchronized (entries) {
+            entries.put(key, computed);
+        }
+        return computed;
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    private static final class Key {
+        final String projectId;
+        final TeamEngine.Algorithm algorithm;
+        final long dataVersion;
+
+        Key(String projectId, TeamEngine.Algorithm algorithm, long dataVersion) {
+            this.projectId = projectId;
+            this.algorithm = algorithm;
+            this.dataVersion = dataVersion;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return dataVersion == other.dataVersion && algorithm == other.algorithm && projectId.equals(other.projectId);
+        }
+
+        @Override
+        public int hashCode() {
+            return (projectId.hashCode() * 31 + algorithm.hashCode()) * 31 + Long.hashCode(dataVersion);
+        }
+    }
+}
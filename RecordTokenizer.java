@@ -0,0 +1,286 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Reusable tokenizer for the pipe-delimited data lines, in place of split("\\|").
+ * A line is given as a byte range of the read buffer or as characters; tokenizing
+ * only records where each field starts and ends, without decoding the line or
+ * running a regex, and row() then decodes the fields. Whole fields are interned in
+ * a small dictionary, so the same skill list, count or ratio read a thousand times
+ * is one String.
+ *
+ * Fields follow String.split: trailing empty fields are dropped and an empty line
+ * has no fields. One instance serves one thread; readLines creates its own.
+ */
+public final class RecordTokenizer {
+    private static final int MAX_INTERNED = 1 << 16;
+    private static final int MAX_INTERNED_LENGTH = 32;
+    // Columns are tracked up to this one; a column is tried this many times before
+    // its hit rate decides whether it is still interned
+    private static final int TRACKED_COLUMNS = 16;
+    private static final int TRIAL_LOOKUPS = 1024;
+    private static final String[] NO_FIELDS = new String[0];
+
+    private final Charset charset;
+    // Byte lines are split on the '|' byte, which only works when it cannot be part
+    // of another character; other charsets decode the line first
+    private final boolean splitBytes;
+
+    private byte[] bytes;
+    private CharSequence chars;
+    private int[] starts = new int[8];
+    private int[] ends = new int[8];
+    private int fields;
+
+    // Open-addressing dictionary of short field values
+    private String[] interned = new String[1024];
+    private int[] internedHashes = new int[1024];
+    private int internedCount;
+    private final int[] columnLookups = new int[TRACKED_COLUMNS];
+    private final int[] columnHits = new int[TRACKED_COLUMNS];
+
+    public RecordTokenizer() {
+        this(Charset.defaultCharset());
+    }
+
+    public RecordTokenizer(Charset charset) {
+        this.charset = charset;
+        String name = charset.name();
+        this.splitBytes = charset.equals(StandardCharsets.UTF_8) || charset.equals(StandardCharsets.US_ASCII)
+            || name.startsWith("ISO-8859-") || name.startsWith("windows-125");
+    }
+
+    /**
+     * Calls the sink once per non-empty line in bytes [from, to) of the file, with the
+     * tokenizer positioned on it, and returns the offset after the last line taken. A
+     * last line without a newline is only taken when partialLast is set. A trailing
+     * '\r' is not part of the line.
+     */
+    public static long readLines(File file, long from, long to, boolean partialLast, Metrics.FileReads reads,
+                                 Consumer<RecordTokenizer> sink) throws IOException {
+        if (!file.exists() || to <= from) return from;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            reads.opened();
+            return readLines(channel, from, to, partialLast, reads, sink);
+        }
+    }
+
+    /**
+     * Same as above over an open channel. Only positional reads are used, so threads
+     * may read different ranges of one channel at the same time.
+     */
+    public static long readLines(FileChannel channel, long from, long to, boolean partialLast, Metrics.FileReads reads,
+                                 Consumer<RecordTokenizer> sink) throws IOException {
+        RecordTokenizer fields = new RecordTokenizer();
+        byte[] line = new byte[256];
+        int lineLength = 0;
+        long position = from;
+        long taken = from;
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+        byte[] chunk = buffer.array();
+        while (position < to) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), to - position));
+            int read = channel.read(buffer, position);
+            if (read <= 0) break;
+            reads.read(read);
+            // Lines inside the chunk are tokenized where they are; only a line
+            // crossing into the next chunk is copied out
+            int lineStart = 0;
+            for (int i = 0; i < read; i++) {
+                if (chunk[i] != '\n') continue;
+                if (lineLength == 0) {
+                    fields.emit(chunk, lineStart, i - lineStart, sink);
+                } else {
+                    line = append(line, lineLength, chunk, lineStart, i - lineStart);
+                    fields.emit(line, 0, lineLength + i - lineStart, sink);
+                    lineLength = 0;
+                }
+                lineStart = i + 1;
+                taken = position + i + 1;
+            }
+            line = append(line, lineLength, chunk, lineStart, read - lineStart);
+            lineLength += read - lineStart;
+            position += read;
+        }
+        if (partialLast && lineLength > 0) {
+            fields.emit(line, 0, lineLength, sink);
+            taken = position;
+        }
+        return taken;
+    }
+
+    private static byte[] append(byte[] line, int lineLength, byte[] from, int offset, int length) {
+        if (lineLength + length > line.length) {
+            line = Arrays.copyOf(line, Math.max(line.length * 2, lineLength + length));
+        }
+        System.arraycopy(from, offset, line, lineLength, length);
+        return line;
+    }
+
+    private void emit(byte[] line, int offset, int length, Consumer<RecordTokenizer> sink) {
+        if (length > 0 && line[offset + length - 1] == '\r') length--;
+        if (length == 0) return;
+        tokenize(line, offset, length);
+        sink.accept(this);
+    }
+
+    /** Splits bytes [offset, offset + length) into fields; returns the field count. */
+    public int tokenize(byte[] line, int offset, int length) {
+        if (!splitBytes) {
+            return tokenize(new String(line, offset, length, charset));
+        }
+        bytes = line;
+        chars = null;
+        fields = 0;
+        int start = offset;
+        int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            if (line[i] == '|') {
+                addField(start, i);
+                start = i + 1;
+            }
+        }
+        addField(start, end);
+        dropTrailingEmpty();
+        return fields;
+    }
+
+    /** Splits a line of characters, such as a mutation log record, into fields. */
+    public int tokenize(CharSequence line) {
+        return tokenize(line, 0, line.length());
+    }
+
+    public int tokenize(CharSequence line, int from, int to) {
+        bytes = null;
+        chars = line;
+        fields = 0;
+        int start = from;
+        for (int i = from; i < to; i++) {
+            if (line.charAt(i) == '|') {
+                addField(start, i);
+                start = i + 1;
+            }
+        }
+        addField(start, to);
+        dropTrailingEmpty();
+        return fields;
+    }
+
+    private void addField(int start, int end) {
+        if (fields == starts.length) {
+            starts = Arrays.copyOf(starts, fields * 2);
+            ends = Arrays.copyOf(ends, fields * 2);
+        }
+        starts[fields] = start;
+        ends[fields++] = end;
+    }
+
+    private void dropTrailingEmpty() {
+        while (fields > 0 && starts[fields - 1] == ends[fields - 1]) fields--;
+    }
+
+    public int fields() {
+        return fields;
+    }
+
+    /** The fields as a row, the same as String.split("\\|") gives. */
+    public String[] row() {
+        if (fields == 0) return NO_FIELDS;
+        String[] row = new String[fields];
+        for (int f = 0; f < fields; f++) row[f] = string(f);
+        return row;
+    }
+
+    /**
+     * The field as a String. A column whose values mostly differ, such as IDs in the
+     * file that defines them or names, stops being interned after a trial.
+     */
+    public String string(int field) {
+        if (field >= TRACKED_COLUMNS) return intern(starts[field], ends[field]);
+        int lookups = columnLookups[field];
+        if (lookups >= TRIAL_LOOKUPS) {
+            return columnHits[field] * 4 < lookups ? decode(starts[field], ends[field]) : intern(starts[field], ends[field]);
+        }
+        int before = internedCount;
+        String value = intern(starts[field], ends[field]);
+        columnLookups[field]++;
+        if (internedCount == before) columnHits[field]++;
+        return value;
+    }
+
+    private String intern(int start, int end) {
+        int length = end - start;
+        if (length == 0) return "";
+        if (length > MAX_INTERNED_LENGTH) return decode(start, end);
+        int hash = 0;
+        byte[] line = bytes;
+        if (line != null) {
+            for (int i = start; i < end; i++) {
+                // Non-ASCII bytes only make sense decoded, so they are not interned
+                if (line[i] < 0) return decode(start, end);
+                hash = 31 * hash + line[i];
+            }
+        } else {
+            for (int i = start; i < end; i++) hash = 31 * hash + chars.charAt(i);
+        }
+        int mask = interned.length - 1;
+        for (int slot = mix(hash) & mask; ; slot = (slot + 1) & mask) {
+            String candidate = interned[slot];
+            if (candidate == null) {
+                String value = decode(start, end);
+                if (internedCount < MAX_INTERNED) add(slot, value, hash);
+                return value;
+            }
+            if (internedHashes[slot] == hash && matches(candidate, start, end)) {
+                return candidate;
+            }
+        }
+    }
+
+    private String decode(int start, int end) {
+        return bytes != null ? new String(bytes, start, end - start, charset) : chars.subSequence(start, end).toString();
+    }
+
+    private boolean matches(String candidate, int start, int end) {
+        if (candidate.length() != end - start) return false;
+        byte[] line = bytes;
+        for (int i = start; i < end; i++) {
+            if (candidate.charAt(i - start) != (line != null ? line[i] : chars.charAt(i))) return false;
+        }
+        return true;
+    }
+
+    private void add(int slot, String value, int hash) {
+        interned[slot] = value;
+        internedHashes[slot] = hash;
+        if (++internedCount * 2 > interned.length) {
+            String[] oldValues = interned;
+            int[] oldHashes = internedHashes;
+            interned = new String[oldValues.length * 2];
+            internedHashes = new int[oldValues.length * 2];
+            int mask = interned.length - 1;
+            for (int i = 0; i < oldValues.length; i++) {
+                if (oldValues[i] == null) continue;
+                int s = mix(oldHashes[i]) & mask;
+                while (interned[s] != null) s = (s + 1) & mask;
+                interned[s] = oldValues[i];
+                internedHashes[s] = oldHashes[i];
+            }
+        }
+    }
+
+    // Sequential IDs hash to neighbouring values, which would cluster under linear
+    // probing; the multiply scatters them
+    private static int mix(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
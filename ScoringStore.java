@@ -0,0 +1,236 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Saved teams, indexed so that saving and looking up a team cost the same however
+ * many teams were saved before:
+ *
+ *  - team IDs come from a counter kept in data_scoring.txt.seq, never from counting
+ *    rows; it is seeded with the highest ID in the file, so teams other programs
+ *    append are not numbered twice
+ *  - each project maps to the team saved for it last
+ *  - each team maps to the pair scores it was saved with (DataStore#pairScores)
+ *
+ * Teams are appended through a transaction like every other change, so the data
+ * files are never read back. The indexes follow the tables through their listeners,
+ * loads and edits by other programs included.
+ */
+public class ScoringStore {
+    private final DataStore dataStore;
+    private final Map<String, String[]> latestByProject = new ConcurrentHashMap<>();
+    private final Map<String, List<TeamEngine.PairScore>> pairsByTeam = new ConcurrentHashMap<>();
+
+    // Guarded by this; next stays 0 until the first ID is handed out
+    private int highestSaved;
+    private int next;
+
+    public ScoringStore(DataStore dataStore) {
+        this.dataStore = dataStore;
+        dataStore.scoring().addListener(new IndexListener(dataStore.scoring()) {
+            @Override
+            void rebuild() {
+                rebuildTeams();
+            }
+
+            @Override
+            void index(String[] row) {
+                indexTeam(row);
+            }
+        });
+        dataStore.pairScores().addListener(new IndexListener(dataStore.pairScores()) {
+            @Override
+            void rebuild() {
+                rebuildPairs();
+            }
+
+            @Override
+            void index(String[] row) {
+                indexPair(row);
+            }
+        });
+        rebuildTeams();
+        rebuildPairs();
+    }
+
+    /**
+     * Adds the team and its pair scores to the transaction under a new team ID, which
+     * is returned. An ID whose transaction is never committed is not handed out again.
+     */
+    public String stageTeam(DataStore.Transaction transaction, TeamEngine.Recommendation team) throws IOException {
+        TeamEvents.SaveTeam event = new TeamEvents.SaveTeam();
+        event.begin();
+        String teamId = nextTeamId();
+        transaction.append(dataStore.scoring(), new String[]{
+            teamId,
+            String.join(",", team.team),
+            team.projectId,
+            String.format(Locale.ROOT, "%.2f", team.cliqueScore)});
+        for (TeamEngine.PairScore pair : team.pairs) {
+            transaction.append(dataStore.pairScores(), new String[]{
+                teamId,
+                pair.user1 + "," + pair.user2,
+                String.format(Locale.ROOT, "%.4f", pair.successRate),
+                String.format(Locale.ROOT, "%.4f", pair.compatibility),
+                String.format(Locale.ROOT, "%.4f", pair.collabBonus),
+                String.format(Locale.ROOT, "%.4f", pair.score)});
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.step = "scoring";
+            event.projectId = team.projectId;
+            event.teamSize = team.team.size();
+            event.teamId = teamId;
+            event.commit();
+        }
+        return teamId;
+    }
+
+    /** Members of the team saved last for the project, or an empty list when none was saved. */
+    public List<String> latestTeam(String projectId) {
+        String[] row = latestByProject.get(projectId);
+        return row == null ? Collections.emptyList() : Arrays.asList(row[1].split(","));
+    }
+
+    /** ID of the team saved last for the project, or null. */
+    public String latestTeamId(String projectId) {
+        String[] row = latestByProject.get(projectId);
+        return row == null ? null : row[0];
+    }
+
+    /** Pair scores the team was saved with, in saving order; empty for teams saved without them. */
+    public List<TeamEngine.PairScore> pairScores(String teamId) {
+        List<TeamEngine.PairScore> pairs = pairsByTeam.get(teamId);
+        if (pairs == null) return Collections.emptyList();
+        synchronized (pairs) {
+            return new ArrayList<>(pairs);
+        }
+    }
+
+    synchronized String nextTeamId() throws IOException {
+        if (next == 0) {
+            next = readCounter();
+        }
+        int number = Math.max(next, highestSaved + 1);
+        next = number + 1;
+        writeCounter(next);
+        return "T" + String.format("%02d", number);
+    }
+
+    private File counterFile() {
+        File scoringFile = dataStore.scoring().file();
+        if (scoringFile == null) {
+            throw new IllegalStateException("Data not loaded");
+        }
+        return new File(scoringFile.getPath() + ".seq");
+    }
+
+    private int readCounter() throws IOException {
+        File file = counterFile();
+        if (!file.isFile()) return 1;
+        Metrics.TEAM_COUNTER.opened();
+        Metrics.TEAM_COUNTER.read(file.length());
+        try {
+            return Integer.parseInt(new String(Files.readAllBytes(file.toPath()), StandardCharsets.US_ASCII).trim());
+        } catch (NumberFormatException e) {
+            return 1;
+        }
+    }
+
+    // Written before the ID is used, so a crash can skip a number but never repeat one
+    private void writeCounter(int value) throws IOException {
+        File file = counterFile();
+        File temp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            out.write((value + "\n").getBytes(StandardCharsets.US_ASCII));
+            out.getFD().sync();
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private synchronized void rebuildTeams() {
+        latestByProject.clear();
+        highestSaved = 0;
+        for (String[] row : dataStore.scoring().all()) indexTeam(row);
+    }
+
+    private synchronized void indexTeam(String[] row) {
+        if (row.length < 3) return;
+        latestByProject.put(row[2], row);
+        highestSaved = Math.max(highestSaved, teamNumber(row[0]));
+    }
+
+    private synchronized void rebuildPairs() {
+        pairsByTeam.clear();
+        for (String[] row : dataStore.pairScores().all()) indexPair(row);
+    }
+
+    // Parsed once here, so a line that is not a pair score is reported when it is read
+    // from the file rather than on every lookup; the team's other pairs are still used
+    private void indexPair(String[] row) {
+        if (row.length < 6 || row[1].indexOf(',') < 0) return;
+        String[] users = row[1].split(",");
+        TeamEngine.PairScore pair;
+        try {
+            pair = new TeamEngine.PairScore(users[0], users[1], Double.parseDouble(row[2]),
+                Double.parseDouble(row[3]), Double.parseDouble(row[4]), Double.parseDouble(row[5]));
+        } catch (NumberFormatException e) {
+            System.err.println("Pair score of team " + row[0] + " skipped, not a number: " + String.join("|", row));
+            return;
+        }
+        List<TeamEngine.PairScore> pairs = pairsByTeam.computeIfAbsent(row[0], k -> new ArrayList<>());
+        synchronized (pairs) {
+            pairs.add(pair);
+        }
+    }
+
+    // T07 -> 7; IDs not in the T<number> form take no part in numbering
+    private static int teamNumber(String teamId) {
+        if (teamId.length() < 2 || teamId.charAt(0) != 'T') return 0;
+        try {
+            return Integer.parseInt(teamId.substring(1));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    // New rows are indexed one by one; updates, deletes and reloads rebuild the index,
+    // which only happens when a file was edited by hand
+    private abstract static class IndexListener implements DataStore.Table.Listener {
+        private final DataStore.Table table;
+
+        IndexListener(DataStore.Table table) {
+            this.table = table;
+        }
+
+        abstract void rebuild();
+
+        abstract void index(String[] row);
+
+        @Override
+        public void rowsInserted(int first, int last) {
+            for (int i = first; i <= last; i++) {
+                String[] row = table.row(i);
+                if (row != null) index(row);
+            }
+        }
+
+        @Override
+        public void rowUpdated(int index) {
+            rebuild();
+        }
+
+        @Override
+        public void rowDeleted(int index) {
+            rebuild();
+        }
+
+        @Override
+        public void reloaded() {
+            rebuild();
+        }
+    }
+}
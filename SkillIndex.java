@@ -0,0 +1,66 @@
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Skills as bitsets. Every skill name is interned into one global dictionary and a
+ * comma separated skill list becomes a long[] with one bit per skill, so the overlap
+ * of a user with a project is a popcount over the ANDed words.
+ *
+ * User bitsets are encoded once when a user row is loaded or changed and are looked
+ * up by the dense user ID; project requirements are cached by their skill list.
+ */
+public class SkillIndex {
+    private static final long[] NO_SKILLS = new long[0];
+
+    private final IdDictionary skillIds = new IdDictionary();
+    private final Map<String, long[]> requirements = new ConcurrentHashMap<>();
+    private long[][] userBits = new long[0][];
+
+    public long[] encode(String skillList) {
+        long[] bits = new long[1];
+        for (String skill : skillList.split(",")) {
+            int id = skillIds.intern(skill);
+            if ((id >>> 6) >= bits.length) {
+                bits = Arrays.copyOf(bits, (id >>> 6) + 1);
+            }
+            bits[id >>> 6] |= 1L << id;
+        }
+        return bits;
+    }
+
+    /** Bitset of a project's required skills, encoded on first use. */
+    public long[] requirement(String skillList) {
+        return requirements.computeIfAbsent(skillList, this::encode);
+    }
+
+    public synchronized void setUser(int uid, String[] row) {
+        if (uid >= userBits.length) {
+            userBits = Arrays.copyOf(userBits, Math.max(uid + 1, userBits.length * 2));
+        }
+        userBits[uid] = row != null && row.length > 3 ? encode(row[3]) : null;
+    }
+
+    public synchronized long[] user(int uid) {
+        if (uid < 0 || uid >= userBits.length || userBits[uid] == null) {
+            return NO_SKILLS;
+        }
+        return userBits[uid];
+    }
+
+    public static int overlap(long[] a, long[] b) {
+        int n = Math.min(a.length, b.length);
+        int count = 0;
+        for (int i = 0; i < n; i++) {
+            count += Long.bitCount(a[i] & b[i]);
+        }
+        return count;
+    }
+
+    public static int count(long[] bits) {
+        int count = 0;
+        for (long word : bits) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+}
@@ -0,0 +1,105 @@
+import java.util.*;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Maximum weight assignment of project slots to users, solved with the Hungarian
+ * algorithm (shortest augmenting paths with potentials) on the rectangular
+ * slots x users matrix. Every slot gets a different user and every user at most
+ * one slot; a project with teamSize k simply contributes k identical rows, so a
+ * user can never be put on two projects.
+ *
+ * With more slots than users the matrix is solved transposed and the slots that
+ * could not be filled are left at -1.
+ */
+public class StaffingAssignment {
+    private StaffingAssignment() {
+    }
+
+    /**
+     * @param score score[slot][user], higher is better
+     * @return the user assigned to each slot, or -1 for an unfilled slot
+     */
+    public static int[] solve(double[][] score) {
+        int slots = score.length;
+        int users = slots == 0 ? 0 : score[0].length;
+        int[] assigned = new int[slots];
+        Arrays.fill(assigned, -1);
+        if (slots == 0 || users == 0) {
+            return assigned;
+        }
+
+        if (slots <= users) {
+            int[] rowOfColumn = minCost(slots, users, (r, c) -> -score[r][c]);
+            for (int user = 0; user < users; user++) {
+                if (rowOfColumn[user] >= 0) assigned[rowOfColumn[user]] = user;
+            }
+        } else {
+            int[] userOfSlot = minCost(users, slots, (r, c) -> -score[c][r]);
+            for (int slot = 0; slot < slots; slot++) {
+                if (userOfSlot[slot] >= 0) assigned[slot] = userOfSlot[slot];
+            }
+        }
+        return assigned;
+    }
+
+    private interface Cost {
+        double at(int row, int column);
+    }
+
+    // Assigns every one of n rows to a distinct column out of m >= n at minimum total cost;
+    // returns the row of each column, -1 for columns left free
+    private static int[] minCost(int n, int m, Cost cost) {
+        double[] u = new double[n + 1];
+        double[] v = new double[m + 1];
+        int[] p = new int[m + 1];       // p[j]: row (1-based) matched to column j, 0 = free
+        int[] way = new int[m + 1];
+        double[] minv = new double[m + 1];
+        boolean[] used = new boolean[m + 1];
+
+        for (int i = 1; i <= n; i++) {
+            p[0] = i;
+            int j0 = 0;
+            Arrays.fill(minv, Double.POSITIVE_INFINITY);
+            Arrays.fill(used, false);
+            do {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new CancellationException("Assignment interrupted");
+                }
+                used[j0] = true;
+                int i0 = p[j0];
+                int j1 = 0;
+                double delta = Double.POSITIVE_INFINITY;
+                for (int j = 1; j <= m; j++) {
+                    if (used[j]) continue;
+                    double cur = cost.at(i0 - 1, j - 1) - u[i0] - v[j];
+                    if (cur < minv[j]) {
+                        minv[j] = cur;
+                        way[j] = j0;
+                    }
+                    if (minv[j] < delta) {
+                        delta = minv[j];
+                        j1 = j;
+                    }
+                }
+                for (int j = 0; j <= m; j++) {
+                    if (used[j]) {
+                        u[p[j]] += delta;
+                        v[j] -= delta;
+                    } else {
+                        minv[j] -= delta;
+                    }
+                }
+                j0 = j1;
+            } while (p[j0] != 0);
+            do {
+                int j1 = way[j0];
+                p[j0] = p[j1];
+                j0 = j1;
+            } while (j0 != 0);
+        }
+
+        int[] rowOfColumn = new int[m];
+        for (int j = 1; j <= m; j++) rowOfColumn[j - 1] = p[j] - 1;
+        return rowOfColumn;
+    }
+}
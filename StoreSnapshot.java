@@ -0,0 +1,165 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Binary copy of the flat data files, read through a memory mapping instead of being
+ * parsed line by line. Layout (all integers big-endian):
+ *
+ *     magic "TMSNAP01"
+ *     int sources, then per source file: long length, long lastModified
+ *     int strings, int[strings + 1] byte offsets, then the UTF-8 bytes of every string
+ *     int tables, then per table: int rows, int[rows + 1] field offsets, int[] string IDs
+ *
+ * Every distinct field value is stored once and rows are runs of fixed-width string
+ * IDs, so reading needs no splitting and each distinct value is decoded only once.
+ * The snapshot records the length and modification time of the files it was made
+ * from and is ignored as soon as any of them differs; the text files stay the source
+ * of truth.
+ */
+public class StoreSnapshot {
+    private static final byte[] MAGIC = "TMSNAP01".getBytes(StandardCharsets.US_ASCII);
+
+    private StoreSnapshot() {
+    }
+
+    /** Length and modification time of every source, in order. */
+    public static long[] fingerprint(List<File> sources) {
+        long[] fingerprint = new long[sources.size() * 2];
+        for (int i = 0; i < sources.size(); i++) {
+            fingerprint[2 * i] = sources.get(i).length();
+            fingerprint[2 * i + 1] = sources.get(i).lastModified();
+        }
+        return fingerprint;
+    }
+
+    /**
+     * Rows of every table, or null when the snapshot is missing, unreadable or was not
+     * made from the current sources.
+     */
+    public static List<List<String[]>> read(File file, List<File> sources) {
+        if (!file.isFile()) return null;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            Metrics.SNAPSHOT.opened();
+            if (channel.size() > Integer.MAX_VALUE) return null;
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            byte[] magic = new byte[MAGIC.length];
+            buffer.get(magic);
+            if (!Arrays.equals(magic, MAGIC)) return null;
+            Metrics.SNAPSHOT.read(channel.size());
+            int sourceCount = buffer.getInt();
+            long[] recorded = new long[sourceCount * 2];
+            buffer.asLongBuffer().get(recorded);
+            buffer.position(buffer.position() + recorded.length * Long.BYTES);
+            if (!Arrays.equals(recorded, fingerprint(sources))) return null;
+
+            int stringCount = buffer.getInt();
+            int[] stringOffsets = ints(buffer, stringCount + 1);
+            byte[] stringBytes = new byte[stringOffsets[stringCount]];
+            buffer.get(stringBytes);
+            String[] strings = new String[stringCount];
+
+            int tableCount = buffer.getInt();
+            List<List<String[]>> tables = new ArrayList<>(tableCount);
+            for (int t = 0; t < tableCount; t++) {
+                int rowCount = buffer.getInt();
+                int[] rowOffsets = ints(buffer, rowCount + 1);
+                int[] fields = ints(buffer, rowOffsets[rowCount]);
+                List<String[]> rows = new ArrayList<>(rowCount);
+                for (int r = 0; r < rowCount; r++) {
+                    int from = rowOffsets[r];
+                    String[] row = new String[rowOffsets[r + 1] - from];
+                    for (int f = 0; f < row.length; f++) {
+                        int id = fields[from + f];
+                        String value = strings[id];
+                        if (value == null) {
+                            value = new String(stringBytes, stringOffsets[id], stringOffsets[id + 1] - stringOffsets[id],
+                                               StandardCharsets.UTF_8);
+                            strings[id] = value;
+                        }
+                        row[f] = value;
+                    }
+                    rows.add(row);
+                }
+                tables.add(rows);
+            }
+            return tables;
+        } catch (IOException | RuntimeException e) {
+            // A truncated or foreign file is treated like a missing one
+            return null;
+        }
+    }
+
+    /** Writes the tables through a temporary file that replaces the snapshot atomically. */
+    public static void write(File file, long[] fingerprint, List<List<String[]>> tables) throws IOException {
+        Map<String, Integer> ids = new HashMap<>();
+        List<String> strings = new ArrayList<>();
+        List<int[]> encoded = new ArrayList<>(tables.size());
+        for (List<String[]> rows : tables) {
+            int size = 0;
+            for (String[] row : rows) size += row.length;
+            int[] fields = new int[size];
+            int next = 0;
+            for (String[] row : rows) {
+                for (String value : row) {
+                    Integer id = ids.get(value);
+                    if (id == null) {
+                        id = strings.size();
+                        ids.put(value, id);
+                        strings.add(value);
+                    }
+                    fields[next++] = id;
+                }
+            }
+            encoded.add(fields);
+        }
+
+        File temp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp);
+             DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out, 1 << 16))) {
+            data.write(MAGIC);
+            data.writeInt(fingerprint.length / 2);
+            for (long value : fingerprint) data.writeLong(value);
+
+            byte[][] bytes = new byte[strings.size()][];
+            data.writeInt(strings.size());
+            int offset = 0;
+            data.writeInt(0);
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = strings.get(i).getBytes(StandardCharsets.UTF_8);
+                offset += bytes[i].length;
+                data.writeInt(offset);
+            }
+            for (byte[] value : bytes) data.write(value);
+
+            data.writeInt(tables.size());
+            for (int t = 0; t < tables.size(); t++) {
+                List<String[]> rows = tables.get(t);
+                data.writeInt(rows.size());
+                int fieldOffset = 0;
+                data.writeInt(0);
+                for (String[] row : rows) {
+                    fieldOffset += row.length;
+                    data.writeInt(fieldOffset);
+                }
+                for (int id : encoded.get(t)) data.writeInt(id);
+            }
+            data.flush();
+            out.getFD().sync();
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Copies the next count ints out of the mapping in one go; advances past them
+    private static int[] ints(ByteBuffer buffer, int count) {
+        int[] values = new int[count];
+        buffer.asIntBuffer().get(values);
+        buffer.position(buffer.position() + count * Integer.BYTES);
+        return values;
+    }
+}
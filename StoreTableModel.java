@@ -0,0 +1,116 @@
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Read-only table model over a DataStore table. Nothing is copied: the JTable asks
+ * for the cells it paints and they are read from the store row at that moment, and
+ * every store change is passed on as an event for just the affected row.
+ *
+ * The row count the view sees only changes on the event dispatch thread. Changes made
+ * there are forwarded as they happen. Rows appended from other threads, such as lines
+ * another program added to the file, are announced later on the event thread; any
+ * other change from another thread ends in one full refresh there.
+ */
+public class StoreTableModel extends AbstractTableModel implements DataStore.Table.Listener {
+    private static final long serialVersionUID = 1L;
+
+    private final DataStore.Table table;
+    private final String[] columnNames;
+
+    // Confined to the event dispatch thread
+    private int rowCount;
+    private final AtomicBoolean refreshQueued = new AtomicBoolean();
+
+    public StoreTableModel(DataStore.Table table, String[] columnNames) {
+        this.table = table;
+        this.columnNames = columnNames;
+        this.rowCount = table.size();
+        table.addListener(this);
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columnNames.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return columnNames[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return String.class;
+    }
+
+    // Rows with fewer fields than columns show the missing ones empty
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        String[] row = table.row(rowIndex);
+        return row != null && columnIndex < row.length ? row[columnIndex] : "";
+    }
+
+    /** Re-reads the row count and repaints every row. */
+    @Override
+    public void fireTableDataChanged() {
+        rowCount = table.size();
+        super.fireTableDataChanged();
+    }
+
+    @Override
+    public void rowsInserted(int first, int last) {
+        if (SwingUtilities.isEventDispatchThread()) {
+            insert(first, last);
+        } else {
+            SwingUtilities.invokeLater(() -> insert(first, last));
+        }
+    }
+
+    @Override
+    public void rowUpdated(int index) {
+        if (SwingUtilities.isEventDispatchThread() && index < rowCount) fireTableRowsUpdated(index, index);
+        else refreshLater();
+    }
+
+    @Override
+    public void rowDeleted(int index) {
+        if (SwingUtilities.isEventDispatchThread() && index < rowCount) {
+            rowCount--;
+            fireTableRowsDeleted(index, index);
+        } else {
+            refreshLater();
+        }
+    }
+
+    @Override
+    public void reloaded() {
+        if (SwingUtilities.isEventDispatchThread()) fireTableDataChanged();
+        else refreshLater();
+    }
+
+    // Rows the view already counts came in with an earlier refresh
+    private void insert(int first, int last) {
+        if (last < rowCount) return;
+        if (first == rowCount) {
+            rowCount = last + 1;
+            fireTableRowsInserted(first, last);
+        } else {
+            fireTableDataChanged();
+        }
+    }
+
+    private void refreshLater() {
+        if (refreshQueued.compareAndSet(false, true)) {
+            SwingUtilities.invokeLater(() -> {
+                refreshQueued.set(false);
+                fireTableDataChanged();
+            });
+        }
+    }
+}
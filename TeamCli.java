@@ -0,0 +1,79 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Headless team recommendation for scripts and batch jobs:
+ *
+ *     java TeamCli --data=. --algorithm=bfs P01 P03
+ *
+ * Prints one JSON object per project on stdout (see TeamEngine.Recommendation#toJson),
+ * in argument order; with no project IDs every project in the file is recommended.
+ * --algorithm=staff runs the batch staffing of all not_started projects instead.
+ * Nothing is written to the data directory, not even the snapshot, and no AWT class
+ * is loaded. Files left by a crash that only a repair makes readable stop the run with
+ * exit status 1 instead of being repaired.
+ *
+ * Options (defaults in brackets):
+ *   --data [.]            directory holding data_user.txt and the other data files
+ *   --algorithm [dfs]     dfs, bfs, optimal or staff
+ */
+public class TeamCli {
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = new HashMap<>();
+        List<String> projectIds = new ArrayList<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                projectIds.add(arg);
+            } else if (arg.contains("=")) {
+                options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            } else {
+                System.err.println("Unknown argument: " + arg + " (expected --name=value or a project ID)");
+                System.exit(2);
+            }
+        }
+
+        File dir = new File(options.getOrDefault("data", "."));
+        if (!new File(dir, "data_user.txt").isFile()) {
+            System.err.println("No data_user.txt in " + dir);
+            System.exit(2);
+        }
+        String algorithmName = options.getOrDefault("algorithm", "dfs");
+        boolean staff = algorithmName.equalsIgnoreCase("staff");
+        TeamEngine.Algorithm algorithm = null;
+        if (!staff) {
+            try {
+                algorithm = TeamEngine.Algorithm.parse(algorithmName);
+            } catch (IllegalArgumentException e) {
+                System.err.println(e.getMessage());
+                System.exit(2);
+            }
+        }
+
+        TeamEngine engine = TeamEngine.inDirectory(dir);
+        try {
+            engine.loadReadOnly();
+        } catch (IOException e) {
+            System.err.println("Cannot read " + dir + " without changing it: " + e.getMessage()
+                               + " (start TeamManagerUI or TeamServer on it once to recover)");
+            System.exit(1);
+        }
+
+        PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8)));
+        if (staff) {
+            for (TeamEngine.Recommendation result : engine.staffPending()) {
+                out.println(result.toJson());
+            }
+        } else {
+            if (projectIds.isEmpty()) {
+                Set<String> seen = new LinkedHashSet<>();
+                for (String[] project : engine.dataStore().projects().all()) seen.add(project[0]);
+                projectIds.addAll(seen);
+            }
+            for (String projectId : projectIds) {
+                out.println(engine.recommendAndScore(projectId, algorithm).toJson());
+            }
+        }
+        out.flush();
+    }
+}
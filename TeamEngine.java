@@ -0,0 +1,621 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Everything behind the Team Formation tab without the tab: loading the data files,
+ * keeping the collaboration graph in step with them, recommending a team and scoring
+ * it. Nothing here touches AWT, so the same code serves the Swing frame, the command
+ * line tool and anything else that runs headless.
+ */
+public class TeamEngine {
+    public enum Algorithm {
+        DFS("DFS"), BFS("BFS"), OPTIMAL("Branch & Bound");
+
+        private final String label;
+
+        Algorithm(String label) {
+            this.label = label;
+        }
+
+        public String label() {
+            return label;
+        }
+
+        /** Accepts the enum name in any case, the UI label, or "bnb" for branch and bound. */
+        public static Algorithm parse(String name) {
+            for (Algorithm algorithm : values()) {
+                if (algorithm.name().equalsIgnoreCase(name) || algorithm.label.equalsIgnoreCase(name)) {
+                    return algorithm;
+                }
+            }
+            if (name.equalsIgnoreCase("bnb")) return OPTIMAL;
+            throw new IllegalArgumentException("Unknown algorithm: " + name + " (expected dfs, bfs or optimal)");
+        }
+    }
+
+    /** UserPairScore of two team members with the three metrics it is made of. */
+    public static final class PairScore {
+        public final String user1;
+        public final String user2;
+        public final double successRate;
+        public final double compatibility;
+        public final double collabBonus;
+        public final double score;
+
+        PairScore(String user1, String user2, double successRate, double compatibility, double collabBonus, double score) {
+            this.user1 = user1;
+            this.user2 = user2;
+            this.successRate = successRate;
+            this.compatibility = compatibility;
+            this.collabBonus = collabBonus;
+            this.score = score;
+        }
+    }
+
+    /**
+     * A recommended team with its scores. When no full team could be formed, error says
+     * why and team holds whatever was found. Immutable, since the cache hands the same
+     * instance to every caller.
+     */
+    public static final class Recommendation {
+        public final String projectId;
+        public final String algorithm;
+        public final int teamSize;
+        public final List<String> team;
+        // UserToProjectMatch per member, in team order
+        public final Map<String, Double> userScores;
+        public final List<PairScore> pairs;
+        public final double cliqueScore;
+        public final String error;
+        // Branch and bound statistics, only for Algorithm.OPTIMAL
+        public final TeamSearch search;
+        // Served from the cache rather than computed by this call
+        public final boolean cached;
+
+        // A team that could not be scored, and why
+        Recommendation(String projectId, String algorithm, int teamSize, List<String> team, String error) {
+            this(projectId, algorithm, teamSize, team, Collections.emptyMap(), Collections.emptyList(),
+                 0.0, error, null, false);
+        }
+
+        // A scored team
+        Recommendation(String projectId, String algorithm, int teamSize, List<String> team,
+                       Map<String, Double> userScores, List<PairScore> pairs, double cliqueScore, TeamSearch search) {
+            this(projectId, algorithm, teamSize, team, userScores, pairs, cliqueScore, null, search, false);
+        }
+
+        private Recommendation(String projectId, String algorithm, int teamSize, List<String> team,
+                               Map<String, Double> userScores, List<PairScore> pairs, double cliqueScore,
+                               String error, TeamSearch search, boolean cached) {
+            this.projectId = projectId;
+            this.algorithm = algorithm;
+            this.teamSize = teamSize;
+            this.team = Collections.unmodifiableList(team);
+            this.userScores = Collections.unmodifiableMap(userScores);
+            this.pairs = Collections.unmodifiableList(pairs);
+            this.cliqueScore = cliqueScore;
+            this.error = error;
+            this.search = search;
+            this.cached = cached;
+        }
+
+        // The same result marked as served from the cache; the collections are shared
+        Recommendation fromCache() {
+            return new Recommendation(projectId, algorithm, teamSize, team, userScores, pairs, cliqueScore,
+                                      error, search, true);
+        }
+
+        public boolean complete() {
+            return error == null;
+        }
+
+        /** One JSON object on one line. */
+        public String toJson() {
+            StringBuilder out = new StringBuilder("{");
+            Json.string(Json.key(out, "project"), projectId);
+            Json.string(Json.key(out, "algorithm"), algorithm);
+            Json.key(out, "teamSize").append(teamSize);
+            Json.strings(Json.key(out, "team"), team);
+            if (error != null) {
+                Json.string(Json.key(out, "error"), error);
+                return out.append('}').toString();
+            }
+            Json.key(out, "userScores").append('{');
+            for (Map.Entry<String, Double> entry : userScores.entrySet()) {
+                Json.number(Json.key(out, entry.getKey()), entry.getValue());
+            }
+            Json.key(out.append('}'), "pairs").append('[');
+            for (int i = 0; i < pairs.size(); i++) {
+                PairScore pair = pairs.get(i);
+                if (i > 0) out.append(',');
+                out.append('{');
+                Json.strings(Json.key(out, "users"), Arrays.asList(pair.user1, pair.user2));
+                Json.number(Json.key(out, "successRate"), pair.successRate);
+                Json.number(Json.key(out, "compatibility"), pair.compatibility);
+                Json.number(Json.key(out, "collabBonus"), pair.collabBonus);
+                Json.number(Json.key(out, "score"), pair.score);
+                out.append('}');
+            }
+            out.append(']');
+            Json.number(Json.key(out, "cliqueScore"), cliqueScore);
+            if (search != null) {
+                Json.key(out, "search").append('{');
+                Json.key(out, "nodes").append(search.nodesExplored());
+                Json.number(Json.key(out, "objective"), search.bestScore());
+                Json.key(out, "timedOut").append(search.timedOut());
+                out.append('}');
+            }
+            return out.append('}').toString();
+        }
+    }
+
+    /**
+     * Receives progress lines while a recommendation or a batch runs. It is called on the
+     * threads doing the work, fork-join workers included, so it must be thread-safe.
+     */
+    public interface Progress {
+        Progress NONE = message -> { };
+
+        void report(String message);
+    }
+
+    /** A status change the project's current state does not allow; the message is for the user. */
+    public static final class StatusChangeRejected extends IllegalStateException {
+        private static final long serialVersionUID = 1L;
+
+        StatusChangeRejected(String message) {
+            super(message);
+        }
+    }
+
+    /** The row changed between reading it and committing a change based on it. */
+    public static final class VersionConflict extends ConcurrentModificationException {
+        private static final long serialVersionUID = 1L;
+
+        VersionConflict(String message) {
+            super(message);
+        }
+    }
+
+    static final int CACHE_CAPACITY = 256;
+
+    private final DataStore dataStore;
+    private final CollabGraph collabGraph;
+    private final TeamRecommender recommender;
+    private final ScoringStore scoring;
+    private final RecommendationCache cache = new RecommendationCache(CACHE_CAPACITY);
+
+    public TeamEngine(DataStore dataStore) {
+        this.dataStore = dataStore;
+        this.collabGraph = new CollabGraph(dataStore.userIds());
+        this.recommender = new TeamRecommender(dataStore, collabGraph);
+        this.scoring = new ScoringStore(dataStore);
+    }
+
+    /** Engine over the four data files, and the saved teams, in one directory. */
+    public static TeamEngine inDirectory(File dir) {
+        return new TeamEngine(new DataStore(
+            new File(dir, "data_user.txt").getPath(), new File(dir, "data_skill.txt").getPath(),
+            new File(dir, "data_project.txt").getPath(), new File(dir, "data_kolaborasi.txt").getPath()));
+    }
+
+    public DataStore dataStore() {
+        return dataStore;
+    }
+
+    public CollabGraph collabGraph() {
+        return collabGraph;
+    }
+
+    public TeamRecommender recommender() {
+        return recommender;
+    }
+
+    public ScoringStore scoring() {
+        return scoring;
+    }
+
+    public RecommendationCache cache() {
+        return cache;
+    }
+
+    /** Changes whenever the store, its indexes or the graph change; keys the cache. */
+    public long dataVersion() {
+        return dataStore.dataVersion() + collabGraph.modifications();
+    }
+
+    public void load() throws IOException {
+        dataStore.load();
+        recommender.buildGraph();
+    }
+
+    /** Loads without writing to the data directory; see DataStore#loadReadOnly. */
+    public void loadReadOnly() throws IOException {
+        dataStore.loadReadOnly();
+        recommender.buildGraph();
+    }
+
+    /**
+     * Follows changes other programs make to the data files. The store and its indexes
+     * take them in on their own; only the collaboration graph is kept here.
+     */
+    public void watch() throws IOException {
+        dataStore.addExternalChangeListener(new DataStore.ExternalChangeListener() {
+            @Override
+            public void rowsAppended(DataStore.Table table, List<String[]> rows) {
+                if (table != dataStore.collaborations()) return;
+                for (String[] row : rows) {
+                    String[] pair = row[0].split(",");
+                    if (pair.length == 2) {
+                        collabGraph.addEdge(pair[0], pair[1]);
+                    }
+                }
+            }
+
+            @Override
+            public void tableReloaded(DataStore.Table table) {
+                if (table == dataStore.collaborations()) {
+                    recommender.buildGraph();
+                }
+            }
+        });
+        dataStore.startWatching();
+    }
+
+    /** The team the algorithm picks for the project, unscored; empty for an unknown project. */
+    public List<String> recommend(String projectId, Algorithm algorithm) {
+        return recommend(projectId, algorithm, Progress.NONE);
+    }
+
+    public List<String> recommend(String projectId, Algorithm algorithm, Progress progress) {
+        switch (algorithm) {
+            case DFS:
+                return recommender.rekomendasiTimDFS(projectId, progress);
+            case BFS:
+                return recommender.rekomendasiTimBFS(projectId, progress);
+            default:
+                return recommender.rekomendasiTimOptimal(projectId, progress);
+        }
+    }
+
+    /** Scored recommendation, served from the cache while the data has not changed. */
+    public Recommendation recommendAndScore(String projectId, Algorithm algorithm) {
+        return recommendAndScore(projectId, algorithm, Progress.NONE);
+    }
+
+    /** The same, reporting candidates examined and pairs scored as it goes; a cache hit reports nothing. */
+    public Recommendation recommendAndScore(String projectId, Algorithm algorithm, Progress progress) {
+        TeamEvents.Recommendation event = new TeamEvents.Recommendation();
+        event.begin();
+        boolean[] computed = {false};
+        Recommendation result = cache.get(projectId, algorithm, dataVersion(), () -> {
+            computed[0] = true;
+            String[] project = dataStore.getProject(projectId);
+            if (project != null && teamSize(project) < 0) {
+                // Reported on this project alone, so the rest of a batch still runs
+                return score(projectId, algorithm, Collections.emptyList(), progress);
+            }
+            return score(projectId, algorithm, recommend(projectId, algorithm, progress), progress);
+        });
+        event.end();
+        if (event.shouldCommit()) {
+            event.projectId = projectId;
+            event.teamSize = result.teamSize;
+            event.algorithm = algorithm.label();
+            event.cacheHit = !computed[0];
+            event.commit();
+        }
+        return computed[0] ? result : result.fromCache();
+    }
+
+    /**
+     * Scores a team for the project: UserToProjectMatch per member, UserPairScore per
+     * pair and the clique score, their average. A team that is empty or of the wrong
+     * size is returned unscored with an error.
+     */
+    public Recommendation score(String projectId, Algorithm algorithm, List<String> team) {
+        return score(projectId, algorithm, team, Progress.NONE);
+    }
+
+    private Recommendation score(String projectId, Algorithm algorithm, List<String> team, Progress progress) {
+        TeamSearch search = algorithm == Algorithm.OPTIMAL ? recommender.lastSearchOnThisThread() : null;
+        return score(projectId, algorithm.label(), team, search, progress);
+    }
+
+    /** Scores a team picked by hand, e.g. one sent by a client of the service. */
+    public Recommendation scoreTeam(String projectId, List<String> team) {
+        return score(projectId, "Manual", team, null, Progress.NONE);
+    }
+
+    private Recommendation score(String projectId, String algorithm, List<String> team, TeamSearch search,
+                                 Progress progress) {
+        String[] project = dataStore.getProject(projectId);
+        int requiredTeamSize = project != null ? teamSize(project) : 0;
+        int teamSize = Math.max(0, requiredTeamSize);
+        if (project == null) {
+            return new Recommendation(projectId, algorithm, teamSize, team, "Project not found!");
+        }
+        if (requiredTeamSize < 0) {
+            return new Recommendation(projectId, algorithm, teamSize, team, invalidTeamSize(project));
+        }
+        if (team.isEmpty()) {
+            return new Recommendation(projectId, algorithm, teamSize, team, "No suitable team found for this project.");
+        }
+        if (team.size() != requiredTeamSize) {
+            return new Recommendation(projectId, algorithm, teamSize, team, String.format(
+                "ERROR: Recommended team has %d members, but project requires %d members\n" +
+                "Please try another formation algorithm.",
+                team.size(), requiredTeamSize));
+        }
+        return scoreMembers(projectId, algorithm, teamSize, team, search, progress);
+    }
+
+    // The member, pair and clique scores of a full team
+    private Recommendation scoreMembers(String projectId, String algorithm, int teamSize, List<String> team,
+                                        TeamSearch search, Progress progress) {
+        Map<String, Double> userScores = new LinkedHashMap<>();
+        for (String userId : team) {
+            userScores.put(userId, userToProjectMatch(userId, projectId));
+        }
+
+        // UserPairScore for all pairs, each read once into one triangular matrix
+        PairIndex pairs = dataStore.pairIndex();
+        int[] memberIds = new int[team.size()];
+        for (int i = 0; i < team.size(); i++) {
+            memberIds[i] = dataStore.userIds().intern(team.get(i));
+        }
+        long pairStart = System.nanoTime();
+        TeamEvents.PairScoring event = new TeamEvents.PairScoring();
+        event.begin();
+        PairScoreMatrix pairMatrix = PairScoreMatrix.compute(memberIds, pairs, progress);
+        Metrics.PAIR_SCORES.record(pairStart);
+        if (Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("Scoring interrupted");
+        }
+        List<PairScore> pairScores = new ArrayList<>();
+        for (int i = 0; i < team.size(); i++) {
+            for (int j = i + 1; j < team.size(); j++) {
+                PairIndex.PairMetrics metrics = pairMatrix.metrics(i, j);
+                pairScores.add(new PairScore(team.get(i), team.get(j), metrics.successRate,
+                    metrics.compatibility, metrics.collabBonus, pairMatrix.get(i, j)));
+            }
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.projectId = projectId;
+            event.teamSize = team.size();
+            event.pairs = pairScores.size();
+            event.indexHits = pairMatrix.indexHits();
+            event.commit();
+        }
+        return new Recommendation(projectId, algorithm, teamSize, team, userScores, pairScores,
+                                  pairMatrix.cliqueScore(), search);
+    }
+
+    /** UserPairScore of two users with its parts, whether or not they ever worked together. */
+    public PairScore pairScore(String user1, String user2) {
+        PairIndex.PairMetrics metrics = dataStore.pairIndex().metrics(user1, user2);
+        return new PairScore(user1, user2, metrics.successRate, metrics.compatibility,
+            metrics.collabBonus, metrics.score());
+    }
+
+    public double userToProjectMatch(String userId, String projectId) {
+        return recommender.hitungSkillMatchScore(userId, projectId) * 0.9 + recommender.hitungAvailabilityBonus(userId) * 0.1;
+    }
+
+    /**
+     * Staffs every not_started project at once: one maximum weight assignment of available
+     * users to project slots, scored by UserToProjectMatch, with each user on at most one
+     * project. A slot only takes a user selectTeamMembers would: one with a required skill,
+     * reachable from the project's start user. Returns one recommendation per pending
+     * project in file order; projects that could not be fully staffed carry an error.
+     *
+     * The assignment is optimal for the projects it staffs. Which projects to leave out when
+     * there are too few people is chosen greedily, so the batch as a whole is a heuristic.
+     */
+    public List<Recommendation> staffPending() {
+        return staffPending(Progress.NONE);
+    }
+
+    /** The same, reporting each project as its candidates are matched and its team scored. */
+    public List<Recommendation> staffPending(Progress progress) {
+        List<String[]> projects = new ArrayList<>();
+        Set<String> seenProjects = new HashSet<>();
+        for (String[] project : dataStore.projects().all()) {
+            if (project.length >= 5 && project[4].equals("not_started") && seenProjects.add(project[0])) {
+                projects.add(project);
+            }
+        }
+
+        List<String> users = new ArrayList<>();
+        Set<String> seenUsers = new HashSet<>();
+        for (String[] user : dataStore.users().all()) {
+            if (user.length >= 5 && Boolean.parseBoolean(user[4]) && seenUsers.add(user[0])) {
+                users.add(user[0]);
+            }
+        }
+
+        // One score row per project, shared by all of its slots; a user the project may not
+        // take costs more than every allowed assignment together, so the solver only uses
+        // one when a slot cannot be filled otherwise, and such a slot counts as unfilled
+        int[] teamSizes = new int[projects.size()];
+        boolean[][] eligible = new boolean[projects.size()][];
+        double[][] projectRows = new double[projects.size()][];
+        boolean[] dropped = new boolean[projects.size()];
+        String[] errors = new String[projects.size()];
+        double highest = 0.0;
+        for (int p = 0; p < projects.size(); p++) {
+            String[] project = projects.get(p);
+            progress.report(String.format("Matching candidates for %s (%d of %d projects)",
+                                          project[0], p + 1, projects.size()));
+            teamSizes[p] = teamSize(project);
+            eligible[p] = recommender.eligibleMembers(project[0], users);
+            projectRows[p] = new double[users.size()];
+            int eligibleCount = 0;
+            for (int u = 0; u < users.size(); u++) {
+                if (!eligible[p][u]) continue;
+                eligibleCount++;
+                projectRows[p][u] = userToProjectMatch(users.get(u), project[0]);
+                highest = Math.max(highest, projectRows[p][u]);
+            }
+            if (teamSizes[p] <= 0) {
+                dropped[p] = true;
+                errors[p] = invalidTeamSize(project);
+            } else if (eligibleCount < teamSizes[p]) {
+                dropped[p] = true;
+                errors[p] = String.format("not staffed (needs %d members, only %d available users qualify)",
+                                          teamSizes[p], eligibleCount);
+            }
+        }
+        int totalSlots = 0;
+        for (int p = 0; p < projects.size(); p++) {
+            if (!dropped[p]) totalSlots += teamSizes[p];
+        }
+        double infeasible = -((highest + 1.0) * totalSlots + 1.0);
+        for (int p = 0; p < projects.size(); p++) {
+            for (int u = 0; u < users.size(); u++) {
+                if (!eligible[p][u]) projectRows[p][u] = infeasible;
+            }
+        }
+
+        // Until every remaining project is fully staffed, the short project whose members
+        // score lowest is dropped and the rest is solved again
+        List<List<String>> teams;
+        while (true) {
+            List<double[]> slotRows = new ArrayList<>();
+            List<Integer> slotProject = new ArrayList<>();
+            for (int p = 0; p < projects.size(); p++) {
+                for (int i = 0; !dropped[p] && i < teamSizes[p]; i++) {
+                    slotRows.add(projectRows[p]);
+                    slotProject.add(p);
+                }
+            }
+
+            progress.report(String.format("Assigning %d slots among %d users", slotRows.size(), users.size()));
+            int[] assigned = StaffingAssignment.solve(slotRows.toArray(new double[0][]));
+            teams = new ArrayList<>();
+            double[] assignedScore = new double[projects.size()];
+            for (int p = 0; p < projects.size(); p++) teams.add(new ArrayList<>());
+            for (int slot = 0; slot < assigned.length; slot++) {
+                int p = slotProject.get(slot);
+                if (assigned[slot] >= 0 && eligible[p][assigned[slot]]) {
+                    teams.get(p).add(users.get(assigned[slot]));
+                    assignedScore[p] += projectRows[p][assigned[slot]];
+                }
+            }
+
+            int weakest = -1;
+            for (int p = 0; p < projects.size(); p++) {
+                if (dropped[p] || teams.get(p).size() == teamSizes[p]) continue;
+                if (weakest < 0 || assignedScore[p] <= assignedScore[weakest]) weakest = p;
+            }
+            if (weakest < 0) break;
+            dropped[weakest] = true;
+            errors[weakest] = String.format("not staffed (needs %d members, not enough available users left)",
+                                            teamSizes[weakest]);
+        }
+
+        List<Recommendation> staffed = new ArrayList<>();
+        for (int p = 0; p < projects.size(); p++) {
+            String projectId = projects.get(p)[0];
+            int teamSize = Math.max(0, teamSizes[p]);
+            if (dropped[p]) {
+                staffed.add(new Recommendation(projectId, "Assignment", teamSize, new ArrayList<>(), errors[p]));
+            } else {
+                progress.report(String.format("Scoring team of %s (%d of %d projects)",
+                                              projectId, p + 1, projects.size()));
+                staffed.add(scoreMembers(projectId, "Assignment", teamSize, teams.get(p), null, Progress.NONE));
+            }
+        }
+        return staffed;
+    }
+
+    // Team size column of a project row, or -1 when it is missing, not a number or not positive
+    static int teamSize(String[] project) {
+        if (project.length < 3) return -1;
+        try {
+            int size = Integer.parseInt(project[2].trim());
+            return size > 0 ? size : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    static String invalidTeamSize(String[] project) {
+        return "invalid team size: " + (project.length < 3 ? "missing" : project[2].trim());
+    }
+
+    /** Members of the team saved last for the project, or an empty list when none was saved. */
+    public List<String> teamMembers(String projectId) {
+        return scoring.latestTeam(projectId);
+    }
+
+    public void stageAvailability(DataStore.Transaction transaction, Collection<String> userIds, boolean available) {
+        for (String userId : userIds) {
+            transaction.update(dataStore.users(), userId, parts -> {
+                if (parts.length < 5) return parts;
+                String[] updated = parts.clone();
+                updated[4] = String.valueOf(available);
+                return updated;
+            });
+        }
+    }
+
+    /**
+     * Stages what moving the project to newStatus means for its team: completing an
+     * on_going project makes the members available again, starting one needs a saved
+     * team and makes its members unavailable. The project row itself is left to the
+     * caller. Returns the members whose availability is changed.
+     *
+     * @throws StatusChangeRejected with a message for the user when the move is not allowed
+     */
+    public List<String> stageStatusChange(DataStore.Transaction transaction, String[] project, String newStatus) {
+        String currentStatus = project[4];
+        if (currentStatus.equals("on_going") && !newStatus.equals("completed")) {
+            throw new StatusChangeRejected("Project is in progress! Can only change status to 'completed'");
+        }
+        if (newStatus.equals("completed") && currentStatus.equals("on_going")) {
+            List<String> members = teamMembers(project[0]);
+            stageAvailability(transaction, members, true);
+            return members;
+        }
+        if (newStatus.equals("on_going") && currentStatus.equals("not_started")) {
+            List<String> members = teamMembers(project[0]);
+            if (members.isEmpty()) {
+                throw new StatusChangeRejected("Cannot start project without a team! Form a team first.");
+            }
+            stageAvailability(transaction, members, false);
+            return members;
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * Moves the project to newStatus together with the team changes it implies, in one
+     * transaction. Fails with VersionConflict, changing nothing, when
+     * the project row changed between reading and committing.
+     */
+    public List<String> changeProjectStatus(String projectId, String newStatus) throws IOException {
+        if (!newStatus.equals("not_started") && !newStatus.equals("on_going") && !newStatus.equals("completed")) {
+            throw new IllegalArgumentException("Unknown status: " + newStatus);
+        }
+        DataStore.Table projects = dataStore.projects();
+        long version = projects.version(projectId);
+        String[] project = projects.get(projectId);
+        if (project == null || project.length < 5) {
+            throw new NoSuchElementException("Project not found: " + projectId);
+        }
+
+        DataStore.Transaction transaction = dataStore.begin();
+        List<String> members = stageStatusChange(transaction, project, newStatus);
+        String[] changed = project.clone();
+        changed[4] = newStatus;
+        transaction.compareAndSet(projects, projectId, version, changed);
+        if (!transaction.commit()) {
+            throw new VersionConflict("Project " + projectId + " was changed meanwhile");
+        }
+        return members;
+    }
+}
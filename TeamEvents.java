@@ -0,0 +1,148 @@
+import jdk.jfr.*;
+
+/**
+ * Flight Recorder events of team formation, so a recording shows them next to GC,
+ * I/O and lock events. They are only recorded while a recording has them enabled:
+ *
+ *     java -XX:StartFlightRecording:filename=team.jfr TeamManagerUI
+ *     jfr print --categories "Team Manager" team.jfr
+ *
+ * Emitters check shouldCommit() before filling in fields that cost anything to get.
+ */
+public final class TeamEvents {
+    private static final String CATEGORY = "Team Manager";
+
+    private TeamEvents() {
+    }
+
+    @Name("teammanager.DataLoad")
+    @Label("Data Load")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    public static class DataLoad extends Event {
+        @Label("From Snapshot")
+        public boolean fromSnapshot;
+
+        @Label("Users")
+        public int users;
+
+        @Label("Projects")
+        public int projects;
+
+        @Label("Collaborations")
+        public int collaborations;
+    }
+
+    @Name("teammanager.GraphBuild")
+    @Label("Graph Build")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    public static class GraphBuild extends Event {
+        @Label("Users")
+        public int users;
+
+        @Label("Edges")
+        public int edges;
+    }
+
+    @Name("teammanager.Recommendation")
+    @Label("Recommendation")
+    @Description("A scored recommendation, computed or served from the cache")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    public static class Recommendation extends Event {
+        @Label("Project")
+        public String projectId;
+
+        @Label("Team Size")
+        public int teamSize;
+
+        @Label("Algorithm")
+        public String algorithm;
+
+        @Label("Cache Hit")
+        public boolean cacheHit;
+    }
+
+    @Name("teammanager.Traversal")
+    @Label("Traversal")
+    @Description("Choice of the start user and of the users reachable from it")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    public static class Traversal extends Event {
+        @Label("Project")
+        public String projectId;
+
+        @Label("Team Size")
+        public int teamSize;
+
+        @Label("Algorithm")
+        public String algorithm;
+
+        @Label("Start User")
+        public String startUser;
+
+        @Label("Reachable")
+        @Description("Size of the start user's collaboration component, read from the component index; no traversal runs")
+        public int visited;
+    }
+
+    @Name("teammanager.CandidateSelection")
+    @Label("Candidate Selection")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    public static class CandidateSelection extends Event {
+        @Label("Project")
+        public String projectId;
+
+        @Label("Team Size")
+        public int teamSize;
+
+        @Label("Algorithm")
+        public String algorithm;
+
+        @Label("Candidates")
+        public int candidates;
+
+        @Label("Selected")
+        public int selected;
+    }
+
+    @Name("teammanager.PairScoring")
+    @Label("Pair Scoring")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    public static class PairScoring extends Event {
+        @Label("Project")
+        public String projectId;
+
+        @Label("Team Size")
+        public int teamSize;
+
+        @Label("Pairs")
+        public int pairs;
+
+        @Label("Index Hits")
+        @Description("Pairs found in the collaboration index; the others get the score of two strangers")
+        public int indexHits;
+    }
+
+    @Name("teammanager.SaveTeam")
+    @Label("Save Team")
+    @Description("One persistence step of saving recommended teams")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    public static class SaveTeam extends Event {
+        @Label("Step")
+        public String step;
+
+        @Label("Project")
+        public String projectId;
+
+        @Label("Team Size")
+        public int teamSize;
+
+        @Label("Team")
+        public String teamId;
+    }
+}
@@ -2,23 +2,29 @@ import javax.swing.*;
 import javax.swing.border.*;
 import javax.swing.table.*;
 import java.awt.*;
+import java.awt.event.ActionListener;
 import java.io.*;
-import java.nio.file.*;
 import java.util.*;
 import java.util.List;
 import java.util.Queue;
-import java.util.stream.Collectors;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
 
 public class TeamManagerUI extends JFrame {
-    private Map<String, Set<String>> collabGraph = new HashMap<>();
     private JTabbedPane tabbedPane;
     private CardLayout cardLayout;
     private JPanel mainPanel;
+    private SwingWorker<?, ?> runningWorker;
     
     private static final String USER_FILE = "data_user.txt";
     private static final String SKILL_FILE = "data_skill.txt";
     private static final String PROJECT_FILE = "data_project.txt";
     private static final String COLLAB_FILE = "data_kolaborasi.txt";
+    private static final long COMPACTION_INTERVAL_SECONDS = 30;
+    
+    private final DataStore dataStore = new DataStore(USER_FILE, SKILL_FILE, PROJECT_FILE, COLLAB_FILE);
+    private final TeamEngine engine = new TeamEngine(dataStore);
+    private final TeamRecommender recommender = engine.recommender();
     
     public TeamManagerUI() {
         setTitle("Team Manager Application");
@@ -26,8 +32,8 @@ public class TeamManagerUI extends JFrame {
         setSize(1000, 700);
         setLocationRelativeTo(null);
         
-        initUI();
         loadInitialData();
+        initUI();
     }
     
     private void initUI() {
@@ -57,6 +63,7 @@ public class TeamManagerUI extends JFrame {
         tabbedPane.addTab("Projects", createProjectPanel());
         tabbedPane.addTab("Collaborations", createCollaborationPanel());
         tabbedPane.addTab("Team Formation", createTeamFormationPanel());
+        tabbedPane.addTab("Diagnostics", createDiagnosticsPanel());
         
         mainPanel.add(tabbedPane, "main");
         add(mainPanel);
@@ -64,7 +71,9 @@ public class TeamManagerUI extends JFrame {
     
     private void loadInitialData() {
         try {
-            buildGraph();
+            engine.load();
+            dataStore.startCompaction(COMPACTION_INTERVAL_SECONDS);
+            engine.watch();
         } catch (IOException e) {
             showError("Error loading initial data: " + e.getMessage());
         }
@@ -89,7 +98,7 @@ public class TeamManagerUI extends JFrame {
         addButton.addActionListener(e -> showAddEmployeeDialog());
         editButton.addActionListener(e -> editEmployee(employeeTable));
         deleteButton.addActionListener(e -> deleteEmployee(employeeTable));
-        refreshButton.addActionListener(e -> refreshTable(employeeTable, USER_FILE));
+        refreshButton.addActionListener(e -> refreshTable(employeeTable));
         
         buttonPanel.add(addButton);
         buttonPanel.add(editButton);
@@ -104,24 +113,7 @@ public class TeamManagerUI extends JFrame {
     
     private JTable createEmployeeTable() {
         String[] columnNames = {"ID", "Name", "Age", "Skills", "Available", "Past Projects"};
-        DefaultTableModel model = new DefaultTableModel(columnNames, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
-        
-        try (BufferedReader reader = new BufferedReader(new FileReader(USER_FILE))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split("\\|");
-                model.addRow(parts);
-            }
-        } catch (IOException e) {
-            showError("Error loading employee data: " + e.getMessage());
-        }
-        
-        JTable table = new JTable(model);
+        JTable table = new JTable(new StoreTableModel(dataStore.users(), columnNames));
         table.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
         table.setAutoCreateRowSorter(true);
         table.setFillsViewportHeight(true);
@@ -179,12 +171,8 @@ public class TeamManagerUI extends JFrame {
                 String line = String.join("|", id, name, String.valueOf(age), skills,
                                   String.valueOf(available), projects);
 
-                try (FileWriter fw = new FileWriter(USER_FILE, true);
-                     BufferedWriter bw = new BufferedWriter(fw)) {
-                    bw.write(line + "\n");
-                }
+                dataStore.addUser(line.split("\\|"));
 
-                refreshTable((JTable)((JScrollPane)tabbedPane.getComponentAt(0)).getViewport().getView(), USER_FILE);
                 dialog.dispose();
                 showMessage("Employee added successfully!");
 
@@ -212,25 +200,19 @@ public class TeamManagerUI extends JFrame {
             return;
         }
         
-        DefaultTableModel model = (DefaultTableModel) table.getModel();
-        String id = (String) model.getValueAt(selectedRow, 0);
+        String id = (String) table.getModel().getValueAt(table.convertRowIndexToModel(selectedRow), 0);
         
-        try {
-            List<String> lines = Files.readAllLines(Paths.get(USER_FILE));
-            for (int i = 0; i < lines.size(); i++) {
-                String[] parts = lines.get(i).split("\\|");
-                if (parts[0].equals(id)) {
-                    showEditEmployeeDialog(parts, i);
-                    return;
-                }
-            }
-            showError("Employee not found in file!");
-        } catch (IOException e) {
-            showError("Error reading employee data: " + e.getMessage());
+        // Saving fails if someone else changes the row while the dialog is open
+        long version = dataStore.users().version(id);
+        String[] parts = dataStore.users().get(id);
+        if (parts == null) {
+            showError("Employee not found!");
+            return;
         }
+        showEditEmployeeDialog(parts, version);
     }
     
-    private void showEditEmployeeDialog(String[] employeeData, int lineNumber) {
+    private void showEditEmployeeDialog(String[] employeeData, long version) {
         JDialog dialog = new JDialog(this, "Edit Employee", true);
         dialog.setLayout(new BorderLayout());
         dialog.setSize(400, 350);
@@ -283,11 +265,11 @@ public class TeamManagerUI extends JFrame {
                 String newLine = String.join("|", id, name, String.valueOf(age), skills, 
                                            String.valueOf(available), projects);
                 
-                List<String> lines = Files.readAllLines(Paths.get(USER_FILE));
-                lines.set(lineNumber, newLine);
-                Files.write(Paths.get(USER_FILE), lines);
+                if (!dataStore.updateUser(newLine.split("\\|"), version)) {
+                    showError("Employee was changed by someone else. Please reopen it and try again.");
+                    return;
+                }
                 
-                refreshTable((JTable)((JScrollPane)tabbedPane.getComponentAt(0)).getViewport().getView(), USER_FILE);
                 dialog.dispose();
                 showMessage("Employee updated successfully!");
             } catch (NumberFormatException ex) {
@@ -314,8 +296,7 @@ public class TeamManagerUI extends JFrame {
             return;
         }
         
-        DefaultTableModel model = (DefaultTableModel) table.getModel();
-        String id = (String) model.getValueAt(selectedRow, 0);
+        String id = (String) table.getModel().getValueAt(table.convertRowIndexToModel(selectedRow), 0);
         
         int confirm = JOptionPane.showConfirmDialog(this, 
             "Are you sure you want to delete employee " + id + "?", 
@@ -323,13 +304,7 @@ public class TeamManagerUI extends JFrame {
         
         if (confirm == JOptionPane.YES_OPTION) {
             try {
-                List<String> lines = Files.readAllLines(Paths.get(USER_FILE));
-                List<String> newLines = lines.stream()
-                    .filter(line -> !line.startsWith(id + "|"))
-                    .collect(Collectors.toList());
-                
-                Files.write(Paths.get(USER_FILE), newLines);
-                refreshTable(table, USER_FILE);
+                dataStore.deleteUser(id);
                 showMessage("Employee deleted successfully!");
             } catch (IOException e) {
                 showError("Error deleting employee: " + e.getMessage());
@@ -356,7 +331,7 @@ public class TeamManagerUI extends JFrame {
         addButton.addActionListener(e -> showAddSkillDialog());
         editButton.addActionListener(e -> editSkill(skillTable));
         deleteButton.addActionListener(e -> deleteSkill(skillTable));
-        refreshButton.addActionListener(e -> refreshTable(skillTable, SKILL_FILE));
+        refreshButton.addActionListener(e -> refreshTable(skillTable));
         
         buttonPanel.add(addButton);
         buttonPanel.add(editButton);
@@ -371,26 +346,7 @@ public class TeamManagerUI extends JFrame {
     
     private JTable createSkillTable() {
         String[] columnNames = {"Skill ID", "Name", "Category", "Level", "User ID"};
-        DefaultTableModel model = new DefaultTableModel(columnNames, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
-        
-        try (BufferedReader reader = new BufferedReader(new FileReader(SKILL_FILE))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split("\\|");
-                if (parts.length >= 5) {
-                    model.addRow(Arrays.copyOf(parts, 5));
-                }
-            }
-        } catch (IOException e) {
-            showError("Error loading skill data: " + e.getMessage());
-        }
-        
-        JTable table = new JTable(model);
+        JTable table = new JTable(new StoreTableModel(dataStore.skills(), columnNames));
         table.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
         table.setAutoCreateRowSorter(true);
         table.setFillsViewportHeight(true);
@@ -443,15 +399,11 @@ public class TeamManagerUI extends JFrame {
                 
                 String line = String.join("|", skillId, name, category, level, userId);
                 
-                try (FileWriter fw = new FileWriter(SKILL_FILE, true);
-                     BufferedWriter bw = new BufferedWriter(fw)) {
-                    bw.write(line + "\n");
-                }
+                dataStore.skills().append(line.split("\\|"));
                 
                 // Update user's skill set
                 updateUserSkill(userId, name);
                 
-                refreshTable((JTable)((JScrollPane)tabbedPane.getComponentAt(1)).getViewport().getView(), SKILL_FILE);
                 dialog.dispose();
                 showMessage("Skill added successfully!");
             } catch (IOException ex) {
@@ -476,25 +428,18 @@ public class TeamManagerUI extends JFrame {
             return;
         }
         
-        DefaultTableModel model = (DefaultTableModel) table.getModel();
-        String skillId = (String) model.getValueAt(selectedRow, 0);
+        String skillId = (String) table.getModel().getValueAt(table.convertRowIndexToModel(selectedRow), 0);
         
-        try {
-            List<String> lines = Files.readAllLines(Paths.get(SKILL_FILE));
-            for (int i = 0; i < lines.size(); i++) {
-                String[] parts = lines.get(i).split("\\|");
-                if (parts[0].equals(skillId)) {
-                    showEditSkillDialog(parts, i);
-                    return;
-                }
-            }
-            showError("Skill not found in file!");
-        } catch (IOException e) {
-            showError("Error reading skill data: " + e.getMessage());
+        long version = dataStore.skills().version(skillId);
+        String[] parts = dataStore.skills().get(skillId);
+        if (parts == null) {
+            showError("Skill not found!");
+            return;
         }
+        showEditSkillDialog(parts, version);
     }
     
-    private void showEditSkillDialog(String[] skillData, int lineNumber) {
+    private void showEditSkillDialog(String[] skillData, long version) {
         JDialog dialog = new JDialog(this, "Edit Skill", true);
         dialog.setLayout(new BorderLayout());
         dialog.setSize(400, 300);
@@ -541,11 +486,11 @@ public class TeamManagerUI extends JFrame {
                 
                 String newLine = String.join("|", skillId, name, category, level, userId);
                 
-                List<String> lines = Files.readAllLines(Paths.get(SKILL_FILE));
-                lines.set(lineNumber, newLine);
-                Files.write(Paths.get(SKILL_FILE), lines);
+                if (!dataStore.skills().compareAndSet(skillId, version, newLine.split("\\|"))) {
+                    showError("Skill was changed by someone else. Please reopen it and try again.");
+                    return;
+                }
                 
-                refreshTable((JTable)((JScrollPane)tabbedPane.getComponentAt(1)).getViewport().getView(), SKILL_FILE);
                 dialog.dispose();
                 showMessage("Skill updated successfully!");
             } catch (IOException ex) {
@@ -570,8 +515,7 @@ public class TeamManagerUI extends JFrame {
             return;
         }
         
-        DefaultTableModel model = (DefaultTableModel) table.getModel();
-        String skillId = (String) model.getValueAt(selectedRow, 0);
+        String skillId = (String) table.getModel().getValueAt(table.convertRowIndexToModel(selectedRow), 0);
         
         int confirm = JOptionPane.showConfirmDialog(this, 
             "Are you sure you want to delete skill " + skillId + "?", 
@@ -579,13 +523,7 @@ public class TeamManagerUI extends JFrame {
         
         if (confirm == JOptionPane.YES_OPTION) {
             try {
-                List<String> lines = Files.readAllLines(Paths.get(SKILL_FILE));
-                List<String> newLines = lines.stream()
-                    .filter(line -> !line.startsWith(skillId + "|"))
-                    .collect(Collectors.toList());
-                
-                Files.write(Paths.get(SKILL_FILE), newLines);
-                refreshTable(table, SKILL_FILE);
+                dataStore.skills().delete(skillId);
                 showMessage("Skill deleted successfully!");
             } catch (IOException e) {
                 showError("Error deleting skill: " + e.getMessage());
@@ -612,7 +550,7 @@ public class TeamManagerUI extends JFrame {
         addButton.addActionListener(e -> showAddProjectDialog());
         editButton.addActionListener(e -> editProject(projectTable));
         deleteButton.addActionListener(e -> deleteProject(projectTable));
-        refreshButton.addActionListener(e -> refreshTable(projectTable, PROJECT_FILE));
+        refreshButton.addActionListener(e -> refreshTable(projectTable));
         
         buttonPanel.add(addButton);
         buttonPanel.add(editButton);
@@ -627,26 +565,7 @@ public class TeamManagerUI extends JFrame {
     
     private JTable createProjectTable() {
         String[] columnNames = {"Project ID", "Required Skills", "Team Size", "Description", "Status"};
-        DefaultTableModel model = new DefaultTableModel(columnNames, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
-        
-        try (BufferedReader reader = new BufferedReader(new FileReader(PROJECT_FILE))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split("\\|");
-                if (parts.length >= 5) {
-                    model.addRow(Arrays.copyOf(parts, 5));
-                }
-            }
-        } catch (IOException e) {
-            showError("Error loading project data: " + e.getMessage());
-        }
-        
-        JTable table = new JTable(model);
+        JTable table = new JTable(new StoreTableModel(dataStore.projects(), columnNames));
         table.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
         table.setAutoCreateRowSorter(true);
         table.setFillsViewportHeight(true);
@@ -699,12 +618,8 @@ public class TeamManagerUI extends JFrame {
                 
                 String line = String.join("|", pid, skills, String.valueOf(teamSize), desc, status);
                 
-                try (FileWriter fw = new FileWriter(PROJECT_FILE, true);
-                     BufferedWriter bw = new BufferedWriter(fw)) {
-                    bw.write(line + "\n");
-                }
+                dataStore.projects().append(line.split("\\|"));
                 
-                refreshTable((JTable)((JScrollPane)tabbedPane.getComponentAt(2)).getViewport().getView(), PROJECT_FILE);
                 dialog.dispose();
                 showMessage("Project added successfully!");
             } catch (NumberFormatException ex) {
@@ -731,25 +646,18 @@ public class TeamManagerUI extends JFrame {
             return;
         }
         
-        DefaultTableModel model = (DefaultTableModel) table.getModel();
-        String projectId = (String) model.getValueAt(selectedRow, 0);
+        String projectId = (String) table.getModel().getValueAt(table.convertRowIndexToModel(selectedRow), 0);
         
-        try {
-            List<String> lines = Files.readAllLines(Paths.get(PROJECT_FILE));
-            for (int i = 0; i < lines.size(); i++) {
-                String[] parts = lines.get(i).split("\\|");
-                if (parts[0].equals(projectId)) {
-                    showEditProjectDialog(parts, i);
-                    return;
-                }
-            }
-            showError("Project not found in file!");
-        } catch (IOException e) {
-            showError("Error reading project data: " + e.getMessage());
+        long version = dataStore.projects().version(projectId);
+        String[] parts = dataStore.projects().get(projectId);
+        if (parts == null) {
+            showError("Project not found!");
+            return;
         }
+        showEditProjectDialog(parts, version);
     }
     
-    private void showEditProjectDialog(String[] projectData, int lineNumber) {
+    private void showEditProjectDialog(String[] projectData, long version) {
         JDialog dialog = new JDialog(this, "Edit Project", true);
         dialog.setLayout(new BorderLayout());
         dialog.setSize(400, 350);
@@ -802,53 +710,30 @@ public class TeamManagerUI extends JFrame {
                     return;
                 }
                 
-                String currentStatus = currentProject[4];
-                
-                // Validate status transitions
-                if (currentStatus.equals("on_going") && !newStatus.equals("completed")) {
-                    showError("Project is in progress! Can only change status to 'completed'");
+                // Team availability and the project row are committed together
+                DataStore.Transaction transaction = dataStore.begin();
+                List<String> changedMembers;
+                try {
+                    changedMembers = engine.stageStatusChange(transaction, currentProject, newStatus);
+                } catch (IllegalStateException ex) {
+                    showError(ex.getMessage());
                     return;
                 }
-                
-                // If changing to completed, make team members available
-                if (newStatus.equals("completed") && currentStatus.equals("on_going")) {
-                    // Get team members from scoring data
-                    List<String> teamMembers = getTeamMembersForProject(pid);
-                    if (teamMembers != null && !teamMembers.isEmpty()) {
-                        for (String userId : teamMembers) {
-                            updateUserAvailability(userId, true);
-                        }
-                        showMessage("Project marked as completed. Team members are now available.");
-                    }
-                }
-                // If changing from not_started to on_going, validate team exists
-                else if (newStatus.equals("on_going") && currentStatus.equals("not_started")) {
-                    List<String> teamMembers = getTeamMembersForProject(pid);
-                    if (teamMembers == null || teamMembers.isEmpty()) {
-                        showError("Cannot start project without a team! Form a team first.");
-                        return;
-                    }
-                    
-                    // Mark team members as unavailable
-                    for (String userId : teamMembers) {
-                        updateUserAvailability(userId, false);
-                    }
-                }
+                boolean teamReleased = newStatus.equals("completed") && !changedMembers.isEmpty();
                 
                 String newLine = String.join("|", pid, skills, String.valueOf(teamSize), desc, newStatus);
                 
-                List<String> lines = Files.readAllLines(Paths.get(PROJECT_FILE));
-                lines.set(lineNumber, newLine);
-                Files.write(Paths.get(PROJECT_FILE), lines);
+                transaction.compareAndSet(dataStore.projects(), pid, version, newLine.split("\\|"));
+                if (!transaction.commit()) {
+                    showError("Project was changed by someone else. Please reopen it and try again.");
+                    return;
+                }
+                if (teamReleased) {
+                    showMessage("Project marked as completed. Team members are now available.");
+                }
                 
-                refreshTable((JTable)((JScrollPane)tabbedPane.getComponentAt(2)).getViewport().getView(), PROJECT_FILE);
                 dialog.dispose();
                 showMessage("Project updated successfully!");
-                
-                // If status changed to completed, refresh employee table
-                if (newStatus.equals("completed")) {
-                    refreshTable((JTable)((JScrollPane)tabbedPane.getComponentAt(0)).getViewport().getView(), USER_FILE);
-                }
             } catch (NumberFormatException ex) {
                 showError("Team Size must be a number!");
             } catch (IOException ex) {
@@ -866,25 +751,6 @@ public class TeamManagerUI extends JFrame {
         dialog.setVisible(true);
     }
 
-    // Helper method to get team members for a project
-        private List<String> getTeamMembersForProject(String projectId) throws IOException {
-            File scoringFile = new File("data_scoring.txt");
-            if (!scoringFile.exists()) {
-                return null;
-            }
-            
-            try (BufferedReader br = new BufferedReader(new FileReader(scoringFile))) {
-                String line;
-                while ((line = br.readLine()) != null) {
-                    String[] parts = line.split("\\|");
-                    if (parts.length >= 3 && parts[2].equals(projectId)) {
-                        return Arrays.asList(parts[1].split(","));
-                    }
-                }
-            }
-            return null;
-        }
-    
     private void deleteProject(JTable table) {
         int selectedRow = table.getSelectedRow();
         if (selectedRow == -1) {
@@ -892,8 +758,7 @@ public class TeamManagerUI extends JFrame {
             return;
         }
         
-        DefaultTableModel model = (DefaultTableModel) table.getModel();
-        String projectId = (String) model.getValueAt(selectedRow, 0);
+        String projectId = (String) table.getModel().getValueAt(table.convertRowIndexToModel(selectedRow), 0);
         
         int confirm = JOptionPane.showConfirmDialog(this, 
             "Are you sure you want to delete project " + projectId + "?", 
@@ -901,13 +766,7 @@ public class TeamManagerUI extends JFrame {
         
         if (confirm == JOptionPane.YES_OPTION) {
             try {
-                List<String> lines = Files.readAllLines(Paths.get(PROJECT_FILE));
-                List<String> newLines = lines.stream()
-                    .filter(line -> !line.startsWith(projectId + "|"))
-                    .collect(Collectors.toList());
-                
-                Files.write(Paths.get(PROJECT_FILE), newLines);
-                refreshTable(table, PROJECT_FILE);
+                dataStore.projects().delete(projectId);
                 showMessage("Project deleted successfully!");
             } catch (IOException e) {
                 showError("Error deleting project: " + e.getMessage());
@@ -934,7 +793,7 @@ public class TeamManagerUI extends JFrame {
         addButton.addActionListener(e -> showAddCollaborationDialog());
         editButton.addActionListener(e -> editCollaboration(collabTable));
         deleteButton.addActionListener(e -> deleteCollaboration(collabTable));
-        refreshButton.addActionListener(e -> refreshTable(collabTable, COLLAB_FILE));
+        refreshButton.addActionListener(e -> refreshTable(collabTable));
         
         buttonPanel.add(addButton);
         buttonPanel.add(editButton);
@@ -949,27 +808,7 @@ public class TeamManagerUI extends JFrame {
     
     private JTable createCollaborationTable() {
         String[] columnNames = {"Users", "Collab Count", "Success Rate", "Compatibility"};
-        DefaultTableModel model = new DefaultTableModel(columnNames, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
-        
-        try (BufferedReader reader = new BufferedReader(new FileReader(COLLAB_FILE))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split("\\|");
-                if (parts.length >= 4) {
-
-                    model.addRow(Arrays.copyOf(parts, 4));
-                }
-            }
-        } catch (IOException e) {
-            showError("Error loading collaboration data: " + e.getMessage());
-        }
-        
-        JTable table = new JTable(model);
+        JTable table = new JTable(new StoreTableModel(dataStore.collaborations(), columnNames));
         table.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
         table.setAutoCreateRowSorter(true);
         table.setFillsViewportHeight(true);
@@ -1025,15 +864,10 @@ public class TeamManagerUI extends JFrame {
                                       String.valueOf(rate),
                                       String.valueOf(comp));
 
-            try (FileWriter fw = new FileWriter(COLLAB_FILE, true);
-                 BufferedWriter bw = new BufferedWriter(fw)) {
-                bw.write(line + "\n");
-            }
+            dataStore.addCollaboration(line.split("\\|"));
 
-            collabGraph.computeIfAbsent(userA, k -> new HashSet<>()).add(userB);
-            collabGraph.computeIfAbsent(userB, k -> new HashSet<>()).add(userA);
+            engine.collabGraph().addEdge(userA, userB);
 
-            refreshTable((JTable)((JScrollPane)tabbedPane.getComponentAt(3)).getViewport().getView(), COLLAB_FILE);
             dialog.dispose();
             showMessage("Collaboration added successfully!");
         } catch (NumberFormatException ex) {
@@ -1060,25 +894,18 @@ private void editCollaboration(JTable table) {
         return;
     }
     
-    DefaultTableModel model = (DefaultTableModel) table.getModel();
-    String users = (String) model.getValueAt(selectedRow, 0);
+    String users = (String) table.getModel().getValueAt(table.convertRowIndexToModel(selectedRow), 0);
     
-    try {
-        List<String> lines = Files.readAllLines(Paths.get(COLLAB_FILE));
-        for (int i = 0; i < lines.size(); i++) {
-            String[] parts = lines.get(i).split("\\|");
-            if (parts[0].equals(users)) {
-                showEditCollaborationDialog(parts, i);
-                return;
-            }
-        }
-        showError("Collaboration not found in file!");
-    } catch (IOException e) {
-        showError("Error reading collaboration data: " + e.getMessage());
+    long version = dataStore.collaborations().version(users);
+    String[] parts = dataStore.collaborations().get(users);
+    if (parts == null) {
+        showError("Collaboration not found!");
+        return;
     }
+    showEditCollaborationDialog(parts, version);
 }
 
-private void showEditCollaborationDialog(String[] collabData, int lineNumber) {
+private void showEditCollaborationDialog(String[] collabData, long version) {
     JDialog dialog = new JDialog(this, "Edit Collaboration", true);
     dialog.setLayout(new BorderLayout());
     dialog.setSize(400, 270);
@@ -1125,11 +952,11 @@ private void showEditCollaborationDialog(String[] collabData, int lineNumber) {
                                          String.valueOf(rate),
                                          String.valueOf(comp));
 
-            List<String> lines = Files.readAllLines(Paths.get(COLLAB_FILE));
-            lines.set(lineNumber, newLine);
-            Files.write(Paths.get(COLLAB_FILE), lines);
+            if (!dataStore.updateCollaboration(newLine.split("\\|"), version)) {
+                showError("Collaboration was changed by someone else. Please reopen it and try again.");
+                return;
+            }
 
-            refreshTable((JTable)((JScrollPane)tabbedPane.getComponentAt(3)).getViewport().getView(), COLLAB_FILE);
             dialog.dispose();
             showMessage("Collaboration updated successfully!");
         } catch (NumberFormatException ex) {
@@ -1157,8 +984,7 @@ private void deleteCollaboration(JTable table) {
         return;
     }
     
-    DefaultTableModel model = (DefaultTableModel) table.getModel();
-    String users = (String) model.getValueAt(selectedRow, 0);
+    String users = (String) table.getModel().getValueAt(table.convertRowIndexToModel(selectedRow), 0);
     
     int confirm = JOptionPane.showConfirmDialog(this, 
         "Are you sure you want to delete collaboration between " + users + "?", 
@@ -1166,25 +992,14 @@ private void deleteCollaboration(JTable table) {
     
     if (confirm == JOptionPane.YES_OPTION) {
         try {
-            List<String> lines = Files.readAllLines(Paths.get(COLLAB_FILE));
-            List<String> newLines = lines.stream()
-                .filter(line -> !line.startsWith(users + "|"))
-                .collect(Collectors.toList());
-            
-            Files.write(Paths.get(COLLAB_FILE), newLines);
+            dataStore.deleteCollaboration(users);
             
             // Update collaboration graph
             String[] userPair = users.split(",");
             if (userPair.length == 2) {
-                if (collabGraph.containsKey(userPair[0])) {
-                    collabGraph.get(userPair[0]).remove(userPair[1]);
-                }
-                if (collabGraph.containsKey(userPair[1])) {
-                    collabGraph.get(userPair[1]).remove(userPair[0]);
-                }
+                engine.collabGraph().removeEdge(userPair[0], userPair[1]);
             }
             
-            refreshTable(table, COLLAB_FILE);
             showMessage("Collaboration deleted successfully!");
         } catch (IOException e) {
             showError("Error deleting collaboration: " + e.getMessage());
@@ -1205,16 +1020,8 @@ private JPanel createTeamFormationPanel() {
     
     loadProjectsButton.addActionListener(e -> {
         projectCombo.removeAllItems();
-        try (BufferedReader reader = new BufferedReader(new FileReader(PROJECT_FILE))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split("\\|");
-                if (parts.length > 0) {
-                    projectCombo.addItem(parts[0]);
-                }
-            }
-        } catch (IOException ex) {
-            showError("Error loading projects: " + ex.getMessage());
+        for (String[] parts : dataStore.projects().all()) {
+            projectCombo.addItem(parts[0]);
         }
     });
     
@@ -1228,19 +1035,25 @@ private JPanel createTeamFormationPanel() {
     ButtonGroup algoGroup = new ButtonGroup();
     JRadioButton dfsButton = new JRadioButton("DFS");
     JRadioButton bfsButton = new JRadioButton("BFS");
+    JRadioButton optimalButton = new JRadioButton("Branch & Bound");
     JButton compareButton = new JButton("Compare Algorithms");
+    JButton staffAllButton = new JButton("Staff All Pending");
     
     algoGroup.add(dfsButton);
     algoGroup.add(bfsButton);
+    algoGroup.add(optimalButton);
     dfsButton.setSelected(true);
     
     algoPanel.add(algoLabel);
     algoPanel.add(dfsButton);
     algoPanel.add(bfsButton);
+    algoPanel.add(optimalButton);
     algoPanel.add(compareButton);
+    algoPanel.add(staffAllButton);
     
     // Team formation button
     JButton formTeamButton = new JButton("Form Team");
+    JButton cancelButton = new JButton("Cancel");
     
     // Results area
     JTextArea resultsArea = new JTextArea();
@@ -1291,147 +1104,176 @@ private JPanel createTeamFormationPanel() {
             return;
         }
 
-        
-        try {
-            String[] project = getProjectDetails(projectId);
-            if (project == null) {
-                showError("Project not found!");
-                return;
-            }
+        String[] project = getProjectDetails(projectId);
+        if (project == null) {
+            showError("Project not found!");
+            return;
+        }
 
-             if (project[4].equals("on_going")) {
+        if (project[4].equals("on_going")) {
             showError("This project is already in progress and cannot have another team assigned!");
             return;
-            }
-            
-            List<String> team;
-            if (dfsButton.isSelected()) {
-                team = rekomendasiTimDFS(projectId);
-            } else {
-                team = rekomendasiTimBFS(projectId);
-            }
-            
-            if (team.isEmpty()) {
-                resultsArea.setText("No suitable team found for this project.");
-                saveTeamButton.setEnabled(false);
-                return;
-            }
-            
-            int requiredTeamSize = Integer.parseInt(project[2].trim());
-            if (team.size() != requiredTeamSize) {
-                resultsArea.setText(String.format(
-                    "ERROR: Recommended team has %d members, but project requires %d members\n" +
-                    "Please try another formation algorithm.",
-                    team.size(), requiredTeamSize));
-                saveTeamButton.setEnabled(false);
-                return;
-            }
-            
-            // Calculate scores
-            Map<String, Double> userToProjectScores = new HashMap<>();
-            Map<String, Double> userPairScores = new HashMap<>();
-            List<String> pairScoresOutput = new ArrayList<>();
-            
-            // UserToProjectMatch scores
-            for (String userId : team) {
-                double skillMatchScore = hitungSkillMatchScore(userId, projectId);
-                double availabilityBonus = hitungAvailabilityBonus(userId);
-                double userToProjectMatch = (skillMatchScore * 0.9) + (availabilityBonus * 0.1);
-                userToProjectScores.put(userId, userToProjectMatch);
-            }
-            
-            // UserPairScore for all pairs
-            for (int i = 0; i < team.size(); i++) {
-                for (int j = i + 1; j < team.size(); j++) {
-                    String user1 = team.get(i);
-                    String user2 = team.get(j);
-                    String pairKey = user1 + "-" + user2;
-                    
-                    double successRate = hitungSuccessRate(user1, user2);
-                    double compatibility = hitungCompatibility(user1, user2);
-                    double collabBonus = hitungCollabBonus(user1, user2);
-                    
-                    double userPairScore = (successRate * 0.5 + compatibility * 0.3 + collabBonus * 0.2);
-                    userPairScores.put(pairKey, userPairScore);
-                    
-                    String pairScoreDetail = String.format(
-                        "Pair %s-%s: SuccessRate=%.2f, Compatibility=%.2f, CollabBonus=%.2f -> Score=%.2f",
-                        user1, user2, successRate, compatibility, collabBonus, userPairScore);
-                    pairScoresOutput.add(pairScoreDetail);
+        }
+        
+        String algorithm = dfsButton.isSelected() ? "DFS" : bfsButton.isSelected() ? "BFS" : "Branch & Bound";
+        saveTeamButton.setEnabled(false);
+        resultsArea.setText("Forming team for " + projectId + " using " + algorithm + "...\n");
+        
+        // Recommendation and scoring run off the EDT; the UI only changes in done()
+        SwingWorker<TeamResult, String> worker = new SwingWorker<TeamResult, String>() {
+            @Override
+            protected TeamResult doInBackground() throws Exception {
+                TeamResult result = new TeamResult();
+                TeamEngine.Algorithm chosen = TeamEngine.Algorithm.parse(algorithm);
+                
+                // Scored recommendation, publishing candidate and pair counts as they come;
+                // repeated runs on unchanged data come from the cache
+                TeamEngine.Recommendation recommendation =
+                    engine.recommendAndScore(projectId, chosen, message -> publish(message));
+                if (recommendation.cached) {
+                    publish("Selected " + recommendation.team.size() + " members (cached)");
                 }
-            }
-            
-            // CliqueScore (average of all UserPairScores)
-            double cliqueScore = userPairScores.values().stream()
-                .mapToDouble(Double::doubleValue)
-                .average()
-                .orElse(0.0);
-            
-            // Display results
-            resultsArea.setText("=== TEAM FORMATION RESULTS ===\n");
-            resultsArea.append("Algorithm: " + (dfsButton.isSelected() ? "DFS" : "BFS") + "\n");
-            resultsArea.append("Project: " + projectId + " - " + project[3] + "\n");
-            resultsArea.append("Required Skills: " + project[1] + "\n");
-            resultsArea.append("Required Team Size: " + requiredTeamSize + "\n\n");
-            resultsArea.append("Clique Score: " + String.format("%.2f", cliqueScore) + 
-                            " (Average of all UserPair Scores)\n");
-            
-            // Team details
-            teamDetailsArea.setText("=== TEAM MEMBERS ===\n");
-            for (String userId : team) {
-                String[] user = getUserDetails(userId);
-                if (user != null) {
-                    teamDetailsArea.append(String.format(
-                        "- %s (%s)\n  Skills: %s\n  Available: %s\n  Past Projects: %s\n\n",
-                        userId, user[1], user[3], user[4], user.length > 5 ? user[5] : ""));
-                } else {
-                    teamDetailsArea.append("- " + userId + " (Details not found)\n");
+                publish(String.format("Recommendation cache: %d hits, %d misses",
+                        engine.cache().hits(), engine.cache().misses()));
+                if (!recommendation.complete()) {
+                    result.results = recommendation.error;
+                    return result;
                 }
+                List<String> team = recommendation.team;
+                int requiredTeamSize = recommendation.teamSize;
+                double cliqueScore = recommendation.cliqueScore;
+                
+                // Results text
+                StringBuilder results = new StringBuilder("=== TEAM FORMATION RESULTS ===\n");
+                results.append("Algorithm: " + algorithm + "\n");
+                TeamSearch lastSearch = recommendation.search;
+                if (lastSearch != null) {
+                    results.append(String.format("Search: %d nodes, objective %.3f%s\n",
+                        lastSearch.nodesExplored(), lastSearch.bestScore(),
+                        lastSearch.timedOut() ? " (time budget reached, best team found so far)" : " (optimal)"));
+                }
+                results.append("Project: " + projectId + " - " + project[3] + "\n");
+                results.append("Required Skills: " + project[1] + "\n");
+                results.append("Required Team Size: " + requiredTeamSize + "\n\n");
+                results.append("Clique Score: " + String.format("%.2f", cliqueScore) + 
+                                " (Average of all UserPair Scores)\n");
+                
+                // Team details
+                StringBuilder teamDetails = new StringBuilder("=== TEAM MEMBERS ===\n");
+                for (String userId : team) {
+                    String[] user = getUserDetails(userId);
+                    if (user != null) {
+                        teamDetails.append(String.format(
+                            "- %s (%s)\n  Skills: %s\n  Available: %s\n  Past Projects: %s\n\n",
+                            userId, user[1], user[3], user[4], user.length > 5 ? user[5] : ""));
+                    } else {
+                        teamDetails.append("- " + userId + " (Details not found)\n");
+                    }
+                }
+                
+                // Score details
+                StringBuilder scores = new StringBuilder("=== USER TO PROJECT MATCH SCORES ===\n");
+                scores.append("Formula: (SkillMatchScore x 0.9) + (AvailabilityBonus x 0.1)\n");
+                for (Map.Entry<String, Double> entry : recommendation.userScores.entrySet()) {
+                    scores.append(entry.getKey() + ": " + String.format("%.2f", entry.getValue()) + "\n");
+                }
+                
+                scores.append("\n=== USER PAIR SCORES ===\n");
+                scores.append("Formula: (SuccessRate x 0.5 + Compatibility x 0.3 + CollabBonus x 0.2)\n");
+                for (TeamEngine.PairScore pair : recommendation.pairs) {
+                    scores.append(String.format(
+                        "Pair %s-%s: SuccessRate=%.2f, Compatibility=%.2f, CollabBonus=%.2f -> Score=%.2f\n",
+                        pair.user1, pair.user2, pair.successRate, pair.compatibility, pair.collabBonus, pair.score));
+                }
+                
+                result.recommendation = recommendation;
+                result.results = results.toString();
+                result.teamDetails = teamDetails.toString();
+                result.scores = scores.toString();
+                return result;
             }
             
-            // Score details
-            scoreArea.setText("=== USER TO PROJECT MATCH SCORES ===\n");
-            scoreArea.append("Formula: (SkillMatchScore x 0.9) + (AvailabilityBonus x 0.1)\n");
-            for (Map.Entry<String, Double> entry : userToProjectScores.entrySet()) {
-                scoreArea.append(entry.getKey() + ": " + String.format("%.2f", entry.getValue()) + "\n");
-            }
-            
-            scoreArea.append("\n=== USER PAIR SCORES ===\n");
-            scoreArea.append("Formula: (SuccessRate x 0.5 + Compatibility x 0.3 + CollabBonus x 0.2)\n");
-            for (String detail : pairScoresOutput) {
-                scoreArea.append(detail + "\n");
+            @Override
+            protected void process(List<String> progress) {
+                for (String line : progress) {
+                    resultsArea.append(line + "\n");
+                }
             }
             
-            // Enable save button and set action
-            saveTeamButton.setEnabled(true);
-            saveTeamButton.addActionListener(ev -> {
+            @Override
+            protected void done() {
+                formTeamButton.setEnabled(true);
+                compareButton.setEnabled(true);
+                staffAllButton.setEnabled(true);
+                cancelButton.setEnabled(false);
+                
+                TeamResult result;
                 try {
-                    // 1. Simpan data scoring terlebih dahulu
-                    simpanDataScoring(projectId, team, userPairScores, cliqueScore);
-                    
-                    // 2. Update status proyek
-                    if (!updateProjectStatus(projectId, "on_going")) {
-                        showError("Gagal mengupdate status proyek");
-                        return;
-                    }
-                    
-                    // 3. Tampilkan pesan sukses
-                    showMessage("Tim berhasil disimpan! Status proyek diubah menjadi on_going");
-                    
-                    // 4. Refresh tabel proyek
-                    refreshTable((JTable)((JScrollPane)tabbedPane.getComponentAt(2))
-                                .getViewport().getView(), PROJECT_FILE);
-                    
-                } catch (IOException ex) {
-                    showError("Error: " + ex.getMessage());
-                    saveTeamButton.setEnabled(false);
+                    result = get();
+                } catch (CancellationException ex) {
+                    resultsArea.setText("Team formation cancelled.");
+                    return;
+                } catch (InterruptedException | ExecutionException ex) {
+                    Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+                    showError("Error forming team: " + cause.getMessage());
+                    return;
                 }
-        });
-            
-        } catch (IOException ex) {
-            showError("Error forming team: " + ex.getMessage());
-            saveTeamButton.setEnabled(false);
-        }
+                
+                resultsArea.setText(result.results);
+                if (result.recommendation == null) {
+                    return;
+                }
+                teamDetailsArea.setText(result.teamDetails);
+                scoreArea.setText(result.scores);
+                
+                // Enable save button and set action
+                for (ActionListener listener : saveTeamButton.getActionListeners()) {
+                    saveTeamButton.removeActionListener(listener);
+                }
+                saveTeamButton.setEnabled(true);
+                saveTeamButton.addActionListener(ev -> {
+                    try {
+                        // 1. Update status proyek, tim, dan ketersediaan anggota dalam satu transaksi
+                        DataStore.Transaction transaction = dataStore.begin();
+                        TeamEngine.Recommendation saved = result.recommendation;
+                        List<TeamEngine.Recommendation> teams = Collections.singletonList(saved);
+                        TeamEvents.SaveTeam step = beginSaveStep("project status");
+                        if (!updateProjectStatus(transaction, Collections.singletonMap(saved.projectId, "on_going"))) {
+                            showError("Gagal mengupdate status proyek");
+                            return;
+                        }
+                        endSaveStep(step, teams);
+                        simpanDataScoring(transaction, teams);
+                        step = beginSaveStep("availability");
+                        updateUserAvailability(transaction, saved.team, false);
+                        endSaveStep(step, teams);
+                        
+                        // 2. Commit sekaligus
+                        step = beginSaveStep("commit");
+                        boolean committed = transaction.commit();
+                        endSaveStep(step, teams);
+                        if (!committed) {
+                            showError("Proyek " + saved.projectId + " diubah oleh pihak lain. Bentuk tim lagi lalu simpan.");
+                            saveTeamButton.setEnabled(false);
+                            return;
+                        }
+                        
+                        // 3. Tampilkan pesan sukses
+                        showMessage("Tim berhasil disimpan! Status proyek diubah menjadi on_going");
+                        
+                    } catch (IOException ex) {
+                        showError("Error: " + ex.getMessage());
+                        saveTeamButton.setEnabled(false);
+                    }
+                });
+            }
+        };
+        formTeamButton.setEnabled(false);
+        compareButton.setEnabled(false);
+        staffAllButton.setEnabled(false);
+        cancelButton.setEnabled(true);
+        runningWorker = worker;
+        worker.execute();
     });
     
     // Compare algorithms action
@@ -1442,46 +1284,184 @@ private JPanel createTeamFormationPanel() {
             return;
         }
         
-        try {
-            long startTime, endTime;
-            
-            // DFS Analysis
-            startTime = System.nanoTime();
-            List<String> dfsTeam = rekomendasiTimDFS(projectId);
-            endTime = System.nanoTime();
-            long dfsTime = endTime - startTime;
-            
-            // BFS Analysis
-            startTime = System.nanoTime();
-            List<String> bfsTeam = rekomendasiTimBFS(projectId);
-            endTime = System.nanoTime();
-            long bfsTime = endTime - startTime;
-            
-            double dfsTimeMs = dfsTime / 1_000_000.0;
-            double bfsTimeMs = bfsTime / 1_000_000.0;
-            
-            resultsArea.setText("=== ALGORITHM COMPARISON ===\n");
-            resultsArea.append("Project: " + projectId + "\n\n");
-            resultsArea.append("DFS Results:\n");
-            resultsArea.append("- Execution Time: " + String.format("%.3f", dfsTimeMs) + " ms\n");
-            resultsArea.append("- Team Size: " + dfsTeam.size() + "\n");
-            resultsArea.append("- Team Members: " + String.join(", ", dfsTeam) + "\n\n");
+        saveTeamButton.setEnabled(false);
+        resultsArea.setText("Comparing algorithms for " + projectId + "...\n");
+        
+        SwingWorker<String, String> worker = new SwingWorker<String, String>() {
+            @Override
+            protected String doInBackground() throws Exception {
+                long startTime, endTime;
+                
+                // DFS and BFS share one implementation, see TeamRecommender#rekomendasiTimDFS
+                startTime = System.nanoTime();
+                List<String> reachableTeam = rekomendasiTimDFS(projectId);
+                endTime = System.nanoTime();
+                long reachableTime = endTime - startTime;
+                publish(String.format("DFS / BFS finished in %.3f ms", reachableTime / 1_000_000.0));
+                
+                if (isCancelled()) {
+                    throw new CancellationException();
+                }
+                
+                // Branch & Bound Analysis
+                startTime = System.nanoTime();
+                List<String> optimalTeam = rekomendasiTimOptimal(projectId);
+                endTime = System.nanoTime();
+                long optimalTime = endTime - startTime;
+                publish(String.format("Branch & Bound finished in %.3f ms", optimalTime / 1_000_000.0));
+                
+                double reachableTimeMs = reachableTime / 1_000_000.0;
+                double optimalTimeMs = optimalTime / 1_000_000.0;
+                
+                StringBuilder text = new StringBuilder("=== ALGORITHM COMPARISON ===\n");
+                text.append("Project: " + projectId + "\n\n");
+                text.append("DFS / BFS Results:\n");
+                text.append("- Execution Time: " + String.format("%.3f", reachableTimeMs) + " ms\n");
+                text.append("- Team Size: " + reachableTeam.size() + "\n");
+                text.append("- Team Members: " + String.join(", ", reachableTeam) + "\n\n");
+                
+                text.append("Branch & Bound Results:\n");
+                text.append("- Execution Time: " + String.format("%.3f", optimalTimeMs) + " ms\n");
+                text.append("- Team Size: " + optimalTeam.size() + "\n");
+                text.append("- Team Members: " + String.join(", ", optimalTeam) + "\n\n");
+                
+                text.append("Conclusion:\n");
+                text.append("- DFS and BFS reach the same users, the start user's collaboration group, which is\n");
+                text.append("  read from one index, so they always form the same team at the same cost\n");
+                text.append("- Branch & Bound is better for: Teams that must maximize the clique score\n");
+                return text.toString();
+            }
             
-            resultsArea.append("BFS Results:\n");
-            resultsArea.append("- Execution Time: " + String.format("%.3f", bfsTimeMs) + " ms\n");
-            resultsArea.append("- Team Size: " + bfsTeam.size() + "\n");
-            resultsArea.append("- Team Members: " + String.join(", ", bfsTeam) + "\n\n");
+            @Override
+            protected void process(List<String> progress) {
+                for (String line : progress) {
+                    resultsArea.append(line + "\n");
+                }
+            }
             
-            resultsArea.append("Conclusion:\n");
-            resultsArea.append("- DFS is " + (dfsTime < bfsTime ? "faster" : "slower") + " than BFS for this project\n");
-            resultsArea.append("- DFS is better for: Teams with deep collaboration chains\n");
-            resultsArea.append("- BFS is better for: Teams with direct and even collaboration\n");
+            @Override
+            protected void done() {
+                formTeamButton.setEnabled(true);
+                compareButton.setEnabled(true);
+                staffAllButton.setEnabled(true);
+                cancelButton.setEnabled(false);
+                
+                try {
+                    resultsArea.setText(get());
+                } catch (CancellationException ex) {
+                    resultsArea.setText("Algorithm comparison cancelled.");
+                } catch (InterruptedException | ExecutionException ex) {
+                    Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+                    showError("Error comparing algorithms: " + cause.getMessage());
+                }
+            }
+        };
+        formTeamButton.setEnabled(false);
+        compareButton.setEnabled(false);
+        staffAllButton.setEnabled(false);
+        cancelButton.setEnabled(true);
+        runningWorker = worker;
+        worker.execute();
+    });
+    
+    // Batch staffing action
+    staffAllButton.addActionListener(e -> {
+        saveTeamButton.setEnabled(false);
+        resultsArea.setText("Staffing all not_started projects...\n");
+        teamDetailsArea.setText("");
+        scoreArea.setText("");
+        
+        SwingWorker<BatchResult, String> worker = new SwingWorker<BatchResult, String>() {
+            @Override
+            protected BatchResult doInBackground() throws Exception {
+                return rekomendasiSemuaProyek(message -> publish(message));
+            }
             
-            saveTeamButton.setEnabled(false);
+            @Override
+            protected void process(List<String> progress) {
+                for (String line : progress) {
+                    resultsArea.append(line + "\n");
+                }
+            }
             
-        } catch (IOException ex) {
-            showError("Error comparing algorithms: " + ex.getMessage());
-            saveTeamButton.setEnabled(false);
+            @Override
+            protected void done() {
+                formTeamButton.setEnabled(true);
+                compareButton.setEnabled(true);
+                staffAllButton.setEnabled(true);
+                cancelButton.setEnabled(false);
+                
+                BatchResult batch;
+                try {
+                    batch = get();
+                } catch (CancellationException ex) {
+                    resultsArea.setText("Batch staffing cancelled.");
+                    return;
+                } catch (InterruptedException | ExecutionException ex) {
+                    Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+                    showError("Error staffing projects: " + cause.getMessage());
+                    return;
+                }
+                
+                resultsArea.setText(batch.results);
+                if (batch.teams.isEmpty()) {
+                    return;
+                }
+                
+                // Save commits every staffed project together
+                for (ActionListener listener : saveTeamButton.getActionListeners()) {
+                    saveTeamButton.removeActionListener(listener);
+                }
+                saveTeamButton.setEnabled(true);
+                saveTeamButton.addActionListener(ev -> {
+                    try {
+                        Map<String, String> statuses = new LinkedHashMap<>();
+                        for (TeamEngine.Recommendation result : batch.teams) {
+                            statuses.put(result.projectId, "on_going");
+                        }
+                        DataStore.Transaction transaction = dataStore.begin();
+                        TeamEvents.SaveTeam step = beginSaveStep("project status");
+                        if (!updateProjectStatus(transaction, statuses)) {
+                            showError("Gagal mengupdate status proyek");
+                            return;
+                        }
+                        endSaveStep(step, batch.teams);
+                        simpanDataScoring(transaction, batch.teams);
+                        step = beginSaveStep("availability");
+                        for (TeamEngine.Recommendation result : batch.teams) {
+                            updateUserAvailability(transaction, result.team, false);
+                        }
+                        endSaveStep(step, batch.teams);
+                        step = beginSaveStep("commit");
+                        boolean committed = transaction.commit();
+                        endSaveStep(step, batch.teams);
+                        if (!committed) {
+                            showError("Sebagian proyek diubah oleh pihak lain. Jalankan Staff All lagi lalu simpan.");
+                            saveTeamButton.setEnabled(false);
+                            return;
+                        }
+                        
+                        showMessage(batch.teams.size() + " tim berhasil disimpan! Status proyek diubah menjadi on_going");
+                        saveTeamButton.setEnabled(false);
+                    } catch (IOException ex) {
+                        showError("Error: " + ex.getMessage());
+                        saveTeamButton.setEnabled(false);
+                    }
+                });
+            }
+        };
+        formTeamButton.setEnabled(false);
+        compareButton.setEnabled(false);
+        staffAllButton.setEnabled(false);
+        cancelButton.setEnabled(true);
+        runningWorker = worker;
+        worker.execute();
+    });
+    
+    cancelButton.setEnabled(false);
+    cancelButton.addActionListener(e -> {
+        if (runningWorker != null) {
+            runningWorker.cancel(true);
         }
     });
     
@@ -1490,7 +1470,10 @@ private JPanel createTeamFormationPanel() {
     JPanel controlPanel = new JPanel(new GridLayout(3, 1, 5, 5));
     controlPanel.add(projectPanel);
     controlPanel.add(algoPanel);
-    controlPanel.add(formTeamButton);
+    JPanel runPanel = new JPanel(new BorderLayout(5, 0));
+    runPanel.add(formTeamButton, BorderLayout.CENTER);
+    runPanel.add(cancelButton, BorderLayout.EAST);
+    controlPanel.add(runPanel);
     
     panel.add(controlPanel, BorderLayout.NORTH);
     panel.add(splitPane, BorderLayout.CENTER);
@@ -1499,456 +1482,277 @@ private JPanel createTeamFormationPanel() {
     return panel;
 }
 
-// ========== Helper Methods ==========
-private void refreshTable(JTable table, String filename) {
-    DefaultTableModel model = (DefaultTableModel) table.getModel();
-    model.setRowCount(0);
-    
-    try (BufferedReader reader = new BufferedReader(new FileReader(filename))) {
-        String line;
-        while ((line = reader.readLine()) != null) {
-            String[] parts = line.split("\\|");
-            model.addRow(parts);
-        }
-    } catch (IOException e) {
-        showError("Error refreshing data: " + e.getMessage());
-    }
+// Result of one Form Team run, built in the background and shown on the EDT
+private static class TeamResult {
+    // Null when no full team was formed
+    TeamEngine.Recommendation recommendation;
+    String results;
+    String teamDetails;
+    String scores;
 }
 
-private void showMessage(String message) {
-    JOptionPane.showMessageDialog(this, message, "Information", JOptionPane.INFORMATION_MESSAGE);
+// Teams of one "Staff All Pending" run; only fully staffed projects are listed
+private static class BatchResult {
+    List<TeamEngine.Recommendation> teams = new ArrayList<>();
+    String results;
 }
 
-private void showError(String message) {
-    JOptionPane.showMessageDialog(this, message, "Error", JOptionPane.ERROR_MESSAGE);
-}
+// ========== Diagnostics Panel ==========
+// Latency per stage and file reads per operation since start (see Metrics), refreshed
+// every second while the tab is showing
+private JPanel createDiagnosticsPanel() {
+    JPanel panel = new JPanel(new BorderLayout());
+    panel.setBorder(new EmptyBorder(10, 10, 10, 10));
 
-// ========== Data Processing Methods ==========
-private void buildGraph() throws IOException {
-    collabGraph.clear();
-    File file = new File(COLLAB_FILE);
-    if (!file.exists()) {
-        return;
-    }
-    
-    try (BufferedReader br = new BufferedReader(new FileReader(COLLAB_FILE))) {
-        String line;
-        while ((line = br.readLine()) != null) {
-            try {
-                String[] parts = line.split("\\|");
-                String[] pair = parts[0].split(",");
-                collabGraph.computeIfAbsent(pair[0], k -> new HashSet<>()).add(pair[1]);
-                collabGraph.computeIfAbsent(pair[1], k -> new HashSet<>()).add(pair[0]);
-            } catch (Exception e) {
-                continue;
-            }
+    String[] stageColumns = {"Stage", "Count", "p50 (ms)", "p99 (ms)", "Max (ms)"};
+    AbstractTableModel stageModel = new AbstractTableModel() {
+        @Override
+        public int getRowCount() {
+            return Metrics.stages().size();
         }
-    }
-}
 
-private Set<String> dfs(String start) {
-    Set<String> visited = new HashSet<>();
-    Stack<String> stack = new Stack<>();
-    stack.push(start);
-    
-    while (!stack.isEmpty()) {
-        String current = stack.pop();
-        if (visited.contains(current)) continue;
-        
-        visited.add(current);
-        for (String neighbor : collabGraph.getOrDefault(current, new HashSet<>())) {
-            if (!visited.contains(neighbor)) {
-                stack.push(neighbor);
-            }
+        @Override
+        public int getColumnCount() {
+            return stageColumns.length;
         }
-    }
-    return visited;
-}
 
-private Set<String> bfs(String start) {
-    Set<String> visited = new HashSet<>();
-    Queue<String> queue = new LinkedList<>();
-    queue.offer(start);
-    visited.add(start);
-    
-    while (!queue.isEmpty()) {
-        String current = queue.poll();
-        
-        for (String neighbor : collabGraph.getOrDefault(current, new HashSet<>())) {
-            if (!visited.contains(neighbor)) {
-                visited.add(neighbor);
-                queue.offer(neighbor);
-            }
+        @Override
+        public String getColumnName(int column) {
+            return stageColumns[column];
         }
-    }
-    return visited;
-}
 
-private String[] getProjectDetails(String pid) throws IOException {
-    try (BufferedReader br = new BufferedReader(new FileReader(PROJECT_FILE))) {
-        String line;
-        while ((line = br.readLine()) != null) {
-            try {
-                String[] parts = line.split("\\|");
-                if (parts[0].equals(pid)) {
-                    return parts;
-                }
-            } catch (Exception e) {
-                continue;
+        @Override
+        public Object getValueAt(int row, int column) {
+            Metrics.Stage stage = Metrics.stages().get(row);
+            switch (column) {
+                case 0: return stage.getName();
+                case 1: return stage.getCount();
+                case 2: return String.format("%.3f", stage.getP50Millis());
+                case 3: return String.format("%.3f", stage.getP99Millis());
+                default: return String.format("%.3f", stage.getMaxMillis());
             }
         }
-    }
-    return null;
-}
+    };
 
-private String[] getUserDetails(String uid) throws IOException {
-    try (BufferedReader br = new BufferedReader(new FileReader(USER_FILE))) {
-        String line;
-        while ((line = br.readLine()) != null) {
-            try {
-                String[] parts = line.split("\\|");
-                if (parts[0].equals(uid)) {
-                    return parts;
-                }
-            } catch (Exception e) {
-                continue;
-            }
+    String[] readColumns = {"File Operation", "Reads", "Bytes Read"};
+    AbstractTableModel readModel = new AbstractTableModel() {
+        @Override
+        public int getRowCount() {
+            return Metrics.fileReads().size();
         }
-    }
-    return null;
-}
 
-private List<String[]> getAllUsers() throws IOException {
-    List<String[]> users = new ArrayList<>();
-    try (BufferedReader br = new BufferedReader(new FileReader(USER_FILE))) {
-        String line;
-        while ((line = br.readLine()) != null) {
-            try {
-                users.add(line.split("\\|"));
-            } catch (Exception e) {
-                continue;
-            }
+        @Override
+        public int getColumnCount() {
+            return readColumns.length;
         }
-    }
-    return users;
-}
 
-private List<String> rekomendasiTimDFS(String pid) throws IOException {
-    String[] project = getProjectDetails(pid);
-    if (project == null) {
-        return new ArrayList<>();
-    }
-    
-    String requiredSkills = project[1];
-    int teamSize = Integer.parseInt(project[2]);
-    
-    List<String[]> users = getAllUsers();
-    Set<String> reqSkillSet = new HashSet<>(Arrays.asList(requiredSkills.split(",")));
-    
-    if (collabGraph.isEmpty()) {
-        buildGraph();
-    }
-
-    String startUser = findBestStartUser(users, reqSkillSet);
-    if (startUser == null) {
-        return new ArrayList<>();
-    }
+        @Override
+        public String getColumnName(int column) {
+            return readColumns[column];
+        }
 
-    Set<String> reachable = dfs(startUser);
-    return selectTeamMembers(users, reachable, reqSkillSet, teamSize);
-}
+        @Override
+        public Object getValueAt(int row, int column) {
+            Metrics.FileReads reads = Metrics.fileReads().get(row);
+            switch (column) {
+                case 0: return reads.getOperation();
+                case 1: return reads.getReads();
+                default: return String.format("%,d", reads.getBytesRead());
+            }
+        }
+    };
+
+    JTable stageTable = new JTable(stageModel);
+    stageTable.setFillsViewportHeight(true);
+    JTable readTable = new JTable(readModel);
+    readTable.setFillsViewportHeight(true);
+
+    JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+    JButton refreshButton = new JButton("Refresh");
+    JButton resetButton = new JButton("Reset");
+    Runnable refresh = () -> {
+        stageModel.fireTableDataChanged();
+        readModel.fireTableDataChanged();
+    };
+    refreshButton.addActionListener(e -> refresh.run());
+    resetButton.addActionListener(e -> {
+        Metrics.reset();
+        refresh.run();
+    });
+    buttonPanel.add(refreshButton);
+    buttonPanel.add(resetButton);
 
-private List<String> rekomendasiTimBFS(String pid) throws IOException {
-    String[] project = getProjectDetails(pid);
-    if (project == null) {
-        return new ArrayList<>();
-    }
-    
-    String requiredSkills = project[1];
-    int teamSize = Integer.parseInt(project[2]);
-    
-    List<String[]> users = getAllUsers();
-    Set<String> reqSkillSet = new HashSet<>(Arrays.asList(requiredSkills.split(",")));
-    
-    if (collabGraph.isEmpty()) {
-        buildGraph();
-    }
+    javax.swing.Timer timer = new javax.swing.Timer(1000, e -> {
+        if (panel.isShowing()) refresh.run();
+    });
+    timer.start();
 
-    String startUser = findBestStartUser(users, reqSkillSet);
-    if (startUser == null) {
-        return new ArrayList<>();
-    }
+    JSplitPane splitPane = new JSplitPane(JSplitPane.VERTICAL_SPLIT,
+                                          new JScrollPane(stageTable), new JScrollPane(readTable));
+    splitPane.setResizeWeight(0.7);
 
-    Set<String> reachable = bfs(startUser);
-    return selectTeamMembers(users, reachable, reqSkillSet, teamSize);
+    panel.add(buttonPanel, BorderLayout.NORTH);
+    panel.add(splitPane, BorderLayout.CENTER);
+    return panel;
 }
 
-private String findBestStartUser(List<String[]> users, Set<String> reqSkillSet) {
-    String bestUser = null;
-    int maxMatches = 0;
-    
-    for (String[] user : users) {
-        try {
-            if (!Boolean.parseBoolean(user[4])) continue;
-            
-            Set<String> skills = new HashSet<>(Arrays.asList(user[3].split(",")));
-            skills.retainAll(reqSkillSet);
-            
-            if (skills.size() > maxMatches) {
-                maxMatches = skills.size();
-                bestUser = user[0];
-            }
-        } catch (Exception e) {
-            continue;
-        }
-    }
-    return bestUser;
+// ========== Helper Methods ==========
+// Tables follow the store row by row; this only repaints everything
+private void refreshTable(JTable table) {
+    ((StoreTableModel) table.getModel()).fireTableDataChanged();
 }
 
-private List<String> selectTeamMembers(List<String[]> users, Set<String> reachable, 
-                                 Set<String> reqSkillSet, int teamSize) {
-    List<String> selected = new ArrayList<>();
-    
-    try {
-        users.sort((a, b) -> {
-            try {
-                Set<String> aSkills = new HashSet<>(Arrays.asList(a[3].split(",")));
-                Set<String> bSkills = new HashSet<>(Arrays.asList(b[3].split(",")));
-                aSkills.retainAll(reqSkillSet);
-                bSkills.retainAll(reqSkillSet);
-                return Integer.compare(bSkills.size(), aSkills.size());
-            } catch (Exception e) {
-                return 0;
-            }
-        });
-        
-        for (String[] user : users) {
-            if (selected.size() >= teamSize) break;
-            try {
-                if (!reachable.contains(user[0])) continue;
-                if (!Boolean.parseBoolean(user[4])) continue;
-                
-                Set<String> skills = new HashSet<>(Arrays.asList(user[3].split(",")));
-                skills.retainAll(reqSkillSet);
-                if (!skills.isEmpty()) {
-                    selected.add(user[0]);
-                }
-            } catch (Exception e) {
-                continue;
-            }
-        }
-    } catch (Exception e) {
-        return new ArrayList<>();
-    }
-    return selected;
+private void showMessage(String message) {
+    JOptionPane.showMessageDialog(this, message, "Information", JOptionPane.INFORMATION_MESSAGE);
 }
 
-private double hitungSkillMatchScore(String userId, String projectId) throws IOException {
-    String[] user = getUserDetails(userId);
-    String[] project = getProjectDetails(projectId);
-    
-    if (user == null || project == null) {
-        return 0.0;
-    }
-    
-    Set<String> userSkills = new HashSet<>(Arrays.asList(user[3].split(",")));
-    Set<String> requiredSkills = new HashSet<>(Arrays.asList(project[1].split(",")));
-    
-    userSkills.retainAll(requiredSkills);
-    return (double) userSkills.size() / requiredSkills.size() * 10; 
+private void showError(String message) {
+    JOptionPane.showMessageDialog(this, message, "Error", JOptionPane.ERROR_MESSAGE);
 }
 
-private double hitungAvailabilityBonus(String userId) throws IOException {
-    String[] user = getUserDetails(userId);
-    if (user == null) {
-        return 0.0;
-    }
-    return Boolean.parseBoolean(user[4]) ? 10.0 : 0.0; 
+// ========== Data Processing Methods ==========
+private String[] getProjectDetails(String pid) {
+    return dataStore.getProject(pid);
 }
 
-private double hitungSuccessRate(String user1, String user2) throws IOException {
-    try (BufferedReader br = new BufferedReader(new FileReader(COLLAB_FILE))) {
-        String line;
-        while ((line = br.readLine()) != null) {
-            String[] parts = line.split("\\|");
-            String[] users = parts[0].split(",");
-            
-            if ((users[0].equals(user1) && users[1].equals(user2)) || 
-                (users[0].equals(user2) && users[1].equals(user1))) {
-                return Double.parseDouble(parts[2]); 
-            }
-        }
-    }
-    return 0.5; 
+private String[] getUserDetails(String uid) {
+    return dataStore.getUser(uid);
 }
 
-private double hitungCompatibility(String user1, String user2) throws IOException {
-    try (BufferedReader br = new BufferedReader(new FileReader(COLLAB_FILE))) {
-        String line;
-        while ((line = br.readLine()) != null) {
-            String[] parts = line.split("\\|");
-            String[] users = parts[0].split(",");
-            
-            if ((users[0].equals(user1) && users[1].equals(user2)) || 
-                (users[0].equals(user2) && users[1].equals(user1))) {
-                return Double.parseDouble(parts[3]); 
-            }
-        }
-    }
-    return 0.5; 
+// Returns a copy, callers are free to sort it
+private List<String[]> getAllUsers() {
+    return dataStore.users().all();
 }
 
-private double hitungCollabBonus(String user1, String user2) throws IOException {
-    double count = 0.0;
-    try (BufferedReader br = new BufferedReader(new FileReader(COLLAB_FILE))) {
-        String line;
-        while ((line = br.readLine()) != null) {
-            String[] parts = line.split("\\|");
-            if (parts.length < 2) continue;
+private List<String> rekomendasiTimDFS(String pid) throws IOException {
+    return recommender.rekomendasiTimDFS(pid);
+}
 
-            String[] users = parts[0].split(",");
+private List<String> rekomendasiTimOptimal(String pid) throws IOException {
+    return recommender.rekomendasiTimOptimal(pid);
+}
 
-            if ((users[0].equals(user1) && users[1].equals(user2)) ||
-                (users[0].equals(user2) && users[1].equals(user1))) {
-                count += Double.parseDouble(parts[1].trim()); 
-            }
+// Staffs every not_started project at once; see TeamEngine.staffPending
+private BatchResult rekomendasiSemuaProyek(TeamEngine.Progress progress) {
+    List<TeamEngine.Recommendation> staffing = engine.staffPending(progress);
+    Set<String> available = new HashSet<>();
+    for (String[] user : getAllUsers()) {
+        if (user.length >= 5 && Boolean.parseBoolean(user[4])) {
+            available.add(user[0]);
         }
     }
-    return Math.min(1.0, count * 0.2); 
-}
-
-private void simpanDataScoring(String projectId, List<String> team, 
-                            Map<String, Double> userPairScores,
-                            double cliqueScore) throws IOException {
-    File file = new File("data_scoring.txt");
     
-    int teamNumber = 1;
-    if (file.exists()) {
-        try (BufferedReader br = new BufferedReader(new FileReader(file))) {
-            while (br.readLine() != null) {
-                teamNumber++;
-            }
+    BatchResult batch = new BatchResult();
+    StringBuilder text = new StringBuilder("=== BATCH STAFFING RESULTS ===\n");
+    text.append(String.format("Pending projects: %d, available users: %d\n\n",
+        staffing.size(), available.size()));
+    double totalMatch = 0.0;
+    for (TeamEngine.Recommendation result : staffing) {
+        String[] project = getProjectDetails(result.projectId);
+        if (!result.complete()) {
+            text.append(String.format("%s - %s: %s\n\n", result.projectId, project[3], result.error));
+            continue;
+        }
+        batch.teams.add(result);
+        
+        double matchSum = 0.0;
+        for (double score : result.userScores.values()) {
+            matchSum += score;
         }
+        totalMatch += matchSum;
+        text.append(String.format("%s - %s\n  Team: %s\n  Avg UserToProjectMatch: %.2f, Clique Score: %.2f\n\n",
+            result.projectId, project[3], String.join(", ", result.team), matchSum / result.team.size(), result.cliqueScore));
     }
-    
-    String teamId = "T" + String.format("%02d", teamNumber);
-    
-    try (PrintWriter writer = new PrintWriter(new FileWriter(file, true))) {
-        writer.printf("%s|%s|%s|%.2f%n",
-            teamId,
-            String.join(",", team),
-            projectId,
-            cliqueScore);
+    text.append(String.format("Staffed %d of %d projects, total UserToProjectMatch %.2f\n",
+        batch.teams.size(), staffing.size(), totalMatch));
+    batch.results = text.toString();
+    return batch;
+}
+
+// Adds one scoring row per team, with its pair scores, under new team IDs
+private void simpanDataScoring(DataStore.Transaction transaction, List<TeamEngine.Recommendation> teams) throws IOException {
+    for (TeamEngine.Recommendation result : teams) {
+        engine.scoring().stageTeam(transaction, result);
     }
-    
-    System.out.println("Data scoring saved for team " + teamId);
 }
 
-private void updateUserAvailability(String userId, boolean available) throws IOException {
-    File inputFile = new File(USER_FILE);
-    File tempFile = new File("temp.txt");
-
-    try (
-        BufferedReader reader = new BufferedReader(new FileReader(inputFile));
-        BufferedWriter writer = new BufferedWriter(new FileWriter(tempFile))
-    ) {
-        String line;
-        while ((line = reader.readLine()) != null) {
-            String[] parts = line.split("\\|");
-            if (parts.length >= 5 && parts[0].equals(userId)) {
-                parts[4] = String.valueOf(available);
-                line = String.join("|", parts);
-            }
-            writer.write(line + "\n");
+// A step of Save Team as a flight recorder event; the scoring step is traced by ScoringStore
+private static TeamEvents.SaveTeam beginSaveStep(String step) {
+    TeamEvents.SaveTeam event = new TeamEvents.SaveTeam();
+    event.step = step;
+    event.begin();
+    return event;
+}
+
+private static void endSaveStep(TeamEvents.SaveTeam event, List<TeamEngine.Recommendation> teams) {
+    event.end();
+    if (event.shouldCommit()) {
+        StringJoiner projects = new StringJoiner(",");
+        int members = 0;
+        for (TeamEngine.Recommendation team : teams) {
+            projects.add(team.projectId);
+            members += team.team.size();
         }
+        event.projectId = projects.toString();
+        event.teamSize = members;
+        event.commit();
     }
+}
 
-    if (!inputFile.delete()) {
-        throw new IOException("Failed to delete old user file");
-    }
-    if (!tempFile.renameTo(inputFile)) {
-        throw new IOException("Failed to rename temp user file");
-    }
+private void updateUserAvailability(DataStore.Transaction transaction, Collection<String> userIds, boolean available) {
+    engine.stageAvailability(transaction, userIds, available);
 }
 
-private boolean updateProjectStatus(String pid, String newStatus) throws IOException {
-    File inputFile = new File(PROJECT_FILE);
-    if (!inputFile.exists()) {
+// Adds the status changes only if every project exists and every change is allowed. Each
+// change is staged against the project version it was checked at, so the commit fails
+// instead of overwriting a status someone else changed in between
+private boolean updateProjectStatus(DataStore.Transaction transaction, Map<String, String> newStatuses) {
+    if (newStatuses.isEmpty()) {
         return false;
     }
-    
-    File tempFile = new File("temp.txt");
-    boolean updated = false;
-    
-    try (BufferedReader br = new BufferedReader(new FileReader(inputFile));
-         BufferedWriter bw = new BufferedWriter(new FileWriter(tempFile))) {
-        
-        String line;
-        while ((line = br.readLine()) != null) {
-            String[] parts = line.split("\\|");
-            if (parts.length >= 5 && parts[0].equals(pid)) {
-                // Validasi perubahan status
-                if (parts[4].equals("completed")) {
-                    showError("Proyek sudah selesai, tidak bisa diubah");
-                    return false;
-                }
-                
-                if (newStatus.equals("on_going") && !parts[4].equals("not_started")) {
-                    showError("Hanya bisa ubah status dari not_started ke on_going");
-                    return false;
-                }
-                
-                parts[4] = newStatus;
-                line = String.join("|", parts);
-                updated = true;
-            }
-            bw.write(line + "\n");
+    Map<String, Long> versions = new HashMap<>();
+    Map<String, String[]> checked = new HashMap<>();
+    for (Map.Entry<String, String> change : newStatuses.entrySet()) {
+        long version = dataStore.projects().version(change.getKey());
+        String[] parts = dataStore.getProject(change.getKey());
+        if (parts == null || parts.length < 5) {
+            return false;
         }
+        // Validasi perubahan status
+        if (parts[4].equals("completed")) {
+            showError("Proyek " + parts[0] + " sudah selesai, tidak bisa diubah");
+            return false;
+        }
+        
+        if (change.getValue().equals("on_going") && !parts[4].equals("not_started")) {
+            showError("Hanya bisa ubah status dari not_started ke on_going (" + parts[0] + ")");
+            return false;
+        }
+        versions.put(change.getKey(), version);
+        checked.put(change.getKey(), parts);
     }
     
-    if (updated) {
-        Files.move(tempFile.toPath(), inputFile.toPath(), 
-                  StandardCopyOption.REPLACE_EXISTING);
-        return true;
+    for (Map.Entry<String, String> change : newStatuses.entrySet()) {
+        String[] changed = checked.get(change.getKey()).clone();
+        changed[4] = change.getValue();
+        transaction.compareAndSet(dataStore.projects(), change.getKey(), versions.get(change.getKey()), changed);
     }
-    return false;
+    return true;
 }
 
 private void updateUserSkill(String userId, String newSkill) throws IOException {
-    File inputFile = new File(USER_FILE);
-    File tempFile = new File("temp.txt");
-
-    try (
-        BufferedReader reader = new BufferedReader(new FileReader(inputFile));
-        BufferedWriter writer = new BufferedWriter(new FileWriter(tempFile))
-    ) {
-        String line;
-        while ((line = reader.readLine()) != null) {
-            String[] parts = line.split("\\|");
-            if (parts.length < 5) continue;
-
-            if (parts[0].equals(userId)) {
-                Set<String> updatedSkills = new HashSet<>(Arrays.asList(parts[3].split(",")));
-                if (!updatedSkills.contains(newSkill)) {
-                    updatedSkills.add(newSkill);
-                }
-                parts[3] = String.join(",", updatedSkills);
-                line = String.join("|", parts); 
-            }
-
-            writer.write(line + "\n");
-        }
-    }
+    dataStore.updateUser(userId, parts -> parts.length < 5 ? parts : withSkill(parts, newSkill));
+    showMessage("User skills updated successfully with new skill.");
+}
 
-    if (!inputFile.delete()) {
-        showError("Failed to delete old file.");
-        return;
-    }
-    if (!tempFile.renameTo(inputFile)) {
-        showError("Failed to rename temp file.");
-    } else {
-        showMessage("User skills updated successfully with new skill.");
+private static String[] withSkill(String[] parts, String newSkill) {
+    Set<String> updatedSkills = new HashSet<>(Arrays.asList(parts[3].split(",")));
+    if (!updatedSkills.contains(newSkill)) {
+        updatedSkills.add(newSkill);
     }
+    String[] updated = parts.clone();
+    updated[3] = String.join(",", updatedSkills);
+    return updated;
 }
 
     public static void main(String[] args) {
@@ -1973,6 +1777,7 @@ private void updateUserSkill(String userId, String newSkill) throws IOException
             e.printStackTrace();
         }
         
+        Metrics.registerMBeans();
         TeamManagerUI app = new TeamManagerUI();
         app.setVisible(true);
     });
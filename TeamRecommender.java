@@ -0,0 +1,436 @@
+import java.util.*;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Team recommendation and the scoring functions behind it, working only on the
+ * in-memory {@link DataStore} and {@link CollabGraph}. The Swing frame delegates
+ * to this class, so the same code runs headless in benchmarks and tools.
+ */
+public class TeamRecommender {
+    static final long OPTIMAL_SEARCH_BUDGET_MS = 2000;
+
+    private final DataStore dataStore;
+    private final CollabGraph collabGraph;
+    private volatile TeamSearch lastSearch;
+    // The same per thread, for callers that recommend concurrently
+    private final ThreadLocal<TeamSearch> threadSearch = new ThreadLocal<>();
+
+    public TeamRecommender(DataStore dataStore, CollabGraph collabGraph) {
+        this.dataStore = dataStore;
+        this.collabGraph = collabGraph;
+    }
+
+    /** Statistics of the most recent branch-and-bound run, or null before the first one. */
+    public TeamSearch lastSearch() {
+        return lastSearch;
+    }
+
+    /** Statistics of the most recent branch-and-bound run on the calling thread. */
+    public TeamSearch lastSearchOnThisThread() {
+        return threadSearch.get();
+    }
+
+    public void buildGraph() {
+        long start = System.nanoTime();
+        TeamEvents.GraphBuild event = new TeamEvents.GraphBuild();
+        event.begin();
+        collabGraph.build(dataStore.collaborations().all());
+        event.end();
+        Metrics.GRAPH_BUILD.record(start);
+        if (event.shouldCommit()) {
+            event.users = dataStore.userIds().size();
+            event.edges = collabGraph.edgeCount();
+            event.commit();
+        }
+    }
+
+    // Component of the start user; every user with the same component is reachable from it
+    // by DFS or BFS alike, so no traversal is needed to build the reachable set
+    private int reachableComponent(String start) {
+        long startNanos = System.nanoTime();
+        int component = collabGraph.component(dataStore.userIds().intern(start));
+        Metrics.TRAVERSAL.record(startNanos);
+        return component;
+    }
+
+    private String[] getProjectDetails(String pid) {
+        return dataStore.getProject(pid);
+    }
+
+    private String[] getUserDetails(String uid) {
+        return dataStore.getUser(uid);
+    }
+
+    // Returns a copy, callers are free to sort it
+    private List<String[]> getAllUsers() {
+        return dataStore.users().all();
+    }
+
+    /**
+     * DFS and BFS from the start user reach the same users, its collaboration component,
+     * and the team is picked from those by skill match, so neither traversal is run: both
+     * read the component from CollabGraph's index and return the same team. The two
+     * names remain as labels for the UI, the saved results and the Flight Recorder events.
+     */
+    public List<String> rekomendasiTimDFS(String pid) {
+        return rekomendasiTimDFS(pid, TeamEngine.Progress.NONE);
+    }
+
+    public List<String> rekomendasiTimDFS(String pid, TeamEngine.Progress progress) {
+        return rekomendasiTimReachable(pid, "DFS", progress);
+    }
+
+    public List<String> rekomendasiTimBFS(String pid) {
+        return rekomendasiTimBFS(pid, TeamEngine.Progress.NONE);
+    }
+
+    public List<String> rekomendasiTimBFS(String pid, TeamEngine.Progress progress) {
+        return rekomendasiTimReachable(pid, "BFS", progress);
+    }
+
+    private List<String> rekomendasiTimReachable(String pid, String algorithm, TeamEngine.Progress progress) {
+        String[] project = getProjectDetails(pid);
+        int teamSize = project == null ? -1 : TeamEngine.teamSize(project);
+        if (teamSize < 0) {
+            return new ArrayList<>();
+        }
+
+        String requiredSkills = project[1];
+
+        List<String[]> users = getAllUsers();
+        long[] reqSkills = dataStore.skillIndex().requirement(requiredSkills);
+
+        if (collabGraph.isEmpty()) {
+            buildGraph();
+        }
+
+        TeamEvents.Traversal traversal = new TeamEvents.Traversal();
+        traversal.begin();
+        String startUser = findBestStartUser(users, reqSkills);
+        if (startUser == null) {
+            return new ArrayList<>();
+        }
+
+        int reachable = reachableComponent(startUser);
+        commitTraversal(traversal, pid, teamSize, algorithm, startUser, reachable);
+
+        TeamEvents.CandidateSelection selection = new TeamEvents.CandidateSelection();
+        selection.begin();
+        List<String> team = selectTeamMembers(users, reachable, reqSkills, teamSize, progress);
+        commitSelection(selection, pid, teamSize, algorithm, users.size(), team.size());
+        return team;
+    }
+
+    // Exact search over available, reachable candidates for the best scoring team of
+    // exactly the project's size (see TeamSearch for the objective and the bound)
+    public List<String> rekomendasiTimOptimal(String pid) {
+        return rekomendasiTimOptimal(pid, TeamEngine.Progress.NONE);
+    }
+
+    public List<String> rekomendasiTimOptimal(String pid, TeamEngine.Progress progress) {
+        String[] project = getProjectDetails(pid);
+        int teamSize = project == null ? -1 : TeamEngine.teamSize(project);
+        if (teamSize < 0) {
+            return new ArrayList<>();
+        }
+
+        List<String[]> users = getAllUsers();
+        long[] reqSkills = dataStore.skillIndex().requirement(project[1]);
+
+        if (collabGraph.isEmpty()) {
+            buildGraph();
+        }
+
+        TeamEvents.Traversal traversal = new TeamEvents.Traversal();
+        traversal.begin();
+        String startUser = findBestStartUser(users, reqSkills);
+        if (startUser == null) {
+            return new ArrayList<>();
+        }
+        int reachable = reachableComponent(startUser);
+        commitTraversal(traversal, pid, teamSize, "Branch & Bound", startUser, reachable);
+
+        // Candidates: available, reachable users with at least one required skill
+        TeamEvents.CandidateSelection selection = new TeamEvents.CandidateSelection();
+        selection.begin();
+        IdDictionary userIds = dataStore.userIds();
+        int[] position = new int[userIds.size()];
+        Arrays.fill(position, -1);
+        List<Integer> candidates = new ArrayList<>();
+        Map<Integer, Double> matchScores = new HashMap<>();
+        int checked = 0;
+        for (String[] user : users) {
+            if ((++checked & 0xFFF) == 0) {
+                progress.report("Checked " + checked + " of " + users.size() + " users, "
+                                + candidates.size() + " candidates so far");
+            }
+            try {
+                int uid = userIds.id(user[0]);
+                if (uid < 0 || collabGraph.component(uid) != reachable || position[uid] >= 0) continue;
+                if (!Boolean.parseBoolean(user[4])) continue;
+                if (SkillIndex.overlap(skillsOf(user[0]), reqSkills) == 0) continue;
+                position[uid] = candidates.size();
+                candidates.add(uid);
+                matchScores.put(uid, hitungSkillMatchScore(user[0], pid) * 0.9 + hitungAvailabilityBonus(user[0]) * 0.1);
+            } catch (Exception e) {
+                continue;
+            }
+        }
+        commitSelection(selection, pid, teamSize, "Branch & Bound", users.size(), candidates.size());
+        progress.report("Examined " + users.size() + " users, " + candidates.size() + " candidates");
+        if (candidates.size() < teamSize) {
+            List<String> partial = new ArrayList<>();
+            for (int uid : candidates) partial.add(userIds.name(uid));
+            return partial;
+        }
+
+        candidates.sort((a, b) -> Double.compare(matchScores.get(b), matchScores.get(a)));
+        int n = candidates.size();
+        double[] match = new double[n];
+        for (int i = 0; i < n; i++) {
+            match[i] = matchScores.get(candidates.get(i));
+            position[candidates.get(i)] = i;
+        }
+
+        // Pair scores that differ from the default, along collaboration edges between candidates
+        long pairStart = System.nanoTime();
+        TeamEvents.PairScoring pairScoring = new TeamEvents.PairScoring();
+        pairScoring.begin();
+        int pairCount = 0;
+        int indexHits = 0;
+        PairIndex pairs = dataStore.pairIndex();
+        double defaultPairScore = pairs.pairScore(-1, -1);
+        int[][] neighbours = new int[n][];
+        double[][] deltas = new double[n][];
+        for (int i = 0; i < n; i++) {
+            int uid = candidates.get(i);
+            int[] adjacent = collabGraph.neighbours(uid);
+            int[] nb = new int[adjacent.length];
+            double[] delta = new double[adjacent.length];
+            int count = 0;
+            for (int v : adjacent) {
+                if (v == uid || v >= position.length || position[v] < 0) continue;
+                PairIndex.PairMetrics metrics = pairs.metrics(uid, v);
+                if ((++pairCount & 0xFFF) == 0) {
+                    progress.report("Scored " + pairCount + " candidate pairs");
+                }
+                if (metrics.found) indexHits++;
+                nb[count] = position[v];
+                delta[count++] = metrics.score() - defaultPairScore;
+            }
+            neighbours[i] = Arrays.copyOf(nb, count);
+            deltas[i] = Arrays.copyOf(delta, count);
+        }
+        Metrics.PAIR_SCORES.record(pairStart);
+        progress.report("Scored " + pairCount + " candidate pairs");
+        pairScoring.end();
+        if (pairScoring.shouldCommit()) {
+            pairScoring.projectId = pid;
+            pairScoring.teamSize = teamSize;
+            pairScoring.pairs = pairCount;
+            pairScoring.indexHits = indexHits;
+            pairScoring.commit();
+        }
+
+        TeamSearch search = new TeamSearch(match, neighbours, deltas, defaultPairScore,
+                                           teamSize, OPTIMAL_SEARCH_BUDGET_MS);
+        long searchStart = System.nanoTime();
+        int[] best = search.solve();
+        Metrics.OPTIMAL_SEARCH.record(searchStart);
+        lastSearch = search;
+        threadSearch.set(search);
+        progress.report("Searched " + search.nodesExplored() + " nodes");
+
+        Arrays.sort(best);
+        List<String> team = new ArrayList<>();
+        for (int i : best) {
+            team.add(userIds.name(candidates.get(i)));
+        }
+        return team;
+    }
+
+    private void commitTraversal(TeamEvents.Traversal event, String pid, int teamSize, String algorithm,
+                                 String startUser, int reachable) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.projectId = pid;
+            event.teamSize = teamSize;
+            event.algorithm = algorithm;
+            event.startUser = startUser;
+            event.visited = collabGraph.componentSize(reachable);
+            event.commit();
+        }
+    }
+
+    private static void commitSelection(TeamEvents.CandidateSelection event, String pid, int teamSize,
+                                        String algorithm, int candidates, int selected) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.projectId = pid;
+            event.teamSize = teamSize;
+            event.algorithm = algorithm;
+            event.candidates = candidates;
+            event.selected = selected;
+            event.commit();
+        }
+    }
+
+    public String findBestStartUser(List<String[]> users, long[] reqSkills) {
+        long start = System.nanoTime();
+        String bestUser = null;
+        int maxMatches = 0;
+
+        for (String[] user : users) {
+            try {
+                if (!Boolean.parseBoolean(user[4])) continue;
+
+                int matches = SkillIndex.overlap(skillsOf(user[0]), reqSkills);
+                if (matches > maxMatches) {
+                    maxMatches = matches;
+                    bestUser = user[0];
+                }
+            } catch (Exception e) {
+                continue;
+            }
+        }
+        Metrics.START_USER.record(start);
+        return bestUser;
+    }
+
+    public List<String> selectTeamMembers(List<String[]> users, int reachable,
+                                          long[] reqSkills, int teamSize) {
+        return selectTeamMembers(users, reachable, reqSkills, teamSize, TeamEngine.Progress.NONE);
+    }
+
+    public List<String> selectTeamMembers(List<String[]> users, int reachable,
+                                          long[] reqSkills, int teamSize, TeamEngine.Progress progress) {
+        long start = System.nanoTime();
+        List<String> selected = new ArrayList<>();
+
+        // Score every user once, then walk them by descending match count. The counting
+        // sort is stable, so ties keep file order just like the old comparator did.
+        int n = users.size();
+        int maxScore = SkillIndex.count(reqSkills);
+        int[] scores = new int[n];
+        int[] bucketStart = new int[maxScore + 2];
+        for (int i = 0; i < n; i++) {
+            if ((i & 0xFFF) == 0) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new CancellationException("Selection interrupted");
+                }
+                if (i > 0) progress.report("Matched skills of " + i + " of " + n + " users");
+            }
+            scores[i] = SkillIndex.overlap(skillsOf(users.get(i)[0]), reqSkills);
+            bucketStart[maxScore - scores[i] + 1]++;
+        }
+        for (int b = 1; b < bucketStart.length; b++) {
+            bucketStart[b] += bucketStart[b - 1];
+        }
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            order[bucketStart[maxScore - scores[i]]++] = i;
+        }
+
+        int examined = 0;
+        for (int i : order) {
+            if (selected.size() >= teamSize || scores[i] == 0) break;
+            examined++;
+            String[] user = users.get(i);
+            try {
+                int uid = dataStore.userIds().id(user[0]);
+                if (uid < 0 || collabGraph.component(uid) != reachable) continue;
+                if (!Boolean.parseBoolean(user[4])) continue;
+                selected.add(user[0]);
+            } catch (Exception e) {
+                continue;
+            }
+        }
+        Metrics.SELECTION.record(start);
+        progress.report("Examined " + examined + " candidates, selected " + selected.size());
+        return selected;
+    }
+
+    /**
+     * Which of the given users the project's team may take, by the rules of
+     * selectTeamMembers: at least one required skill, and in the collaboration
+     * component of the project's start user. None when no user can start the team.
+     */
+    public boolean[] eligibleMembers(String pid, List<String> userIds) {
+        boolean[] eligible = new boolean[userIds.size()];
+        String[] project = getProjectDetails(pid);
+        if (project == null || project.length < 2) {
+            return eligible;
+        }
+        long[] reqSkills = dataStore.skillIndex().requirement(project[1]);
+        if (collabGraph.isEmpty()) {
+            buildGraph();
+        }
+        String startUser = findBestStartUser(getAllUsers(), reqSkills);
+        if (startUser == null) {
+            return eligible;
+        }
+        int reachable = reachableComponent(startUser);
+        for (int u = 0; u < eligible.length; u++) {
+            int uid = dataStore.userIds().id(userIds.get(u));
+            eligible[u] = uid >= 0 && collabGraph.component(uid) == reachable
+                && SkillIndex.overlap(skillsOf(userIds.get(u)), reqSkills) > 0;
+        }
+        return eligible;
+    }
+
+    private long[] skillsOf(String userId) {
+        return dataStore.skillIndex().user(dataStore.userIds().id(userId));
+    }
+
+    public double hitungSkillMatchScore(String userId, String projectId) {
+        long start = System.nanoTime();
+        try {
+            String[] user = getUserDetails(userId);
+            String[] project = getProjectDetails(projectId);
+
+            if (user == null || project == null) {
+                return 0.0;
+            }
+
+            long[] requiredSkills = dataStore.skillIndex().requirement(project[1]);
+            int matches = SkillIndex.overlap(skillsOf(userId), requiredSkills);
+            return (double) matches / SkillIndex.count(requiredSkills) * 10; 
+        } finally {
+            Metrics.SKILL_MATCH.record(start);
+        }
+    }
+
+    public double hitungAvailabilityBonus(String userId) {
+        long start = System.nanoTime();
+        try {
+            String[] user = getUserDetails(userId);
+            if (user == null) {
+                return 0.0;
+            }
+            return Boolean.parseBoolean(user[4]) ? 10.0 : 0.0; 
+        } finally {
+            Metrics.AVAILABILITY.record(start);
+        }
+    }
+
+    public double hitungSuccessRate(String user1, String user2) {
+        long start = System.nanoTime();
+        double rate = dataStore.pairIndex().metrics(user1, user2).successRate;
+        Metrics.SUCCESS_RATE.record(start);
+        return rate;
+    }
+
+    public double hitungCompatibility(String user1, String user2) {
+        long start = System.nanoTime();
+        double compatibility = dataStore.pairIndex().metrics(user1, user2).compatibility;
+        Metrics.COMPATIBILITY.record(start);
+        return compatibility;
+    }
+
+    public double hitungCollabBonus(String user1, String user2) {
+        long start = System.nanoTime();
+        double bonus = dataStore.pairIndex().metrics(user1, user2).collabBonus;
+        Metrics.COLLAB_BONUS.record(start);
+        return bonus;
+    }
+}
@@ -0,0 +1,327 @@
+import java.util.*;
+
+/**
+ * Exact branch-and-bound search for the team of exactly k candidates that maximizes
+ *
+ *     CliqueScore + average(UserToProjectMatch) / 10
+ *
+ * where CliqueScore is the average UserPairScore over all pairs of the team. Both
+ * terms end up on a 0..1 scale.
+ *
+ * Pairs that never collaborated all share the same default pair score, so the pair
+ * term is kept as defaultPairScore plus a sparse delta over the collaboration edges
+ * between candidates. Before searching, the pool is reduced with two exact rules:
+ *
+ *  - A team member can always be swapped for a better matching candidate that is
+ *    neither in the team nor adjacent to it, unless its deltas make up for the gap.
+ *    At most k + (sum of the k largest degrees) candidates can be in or next to a
+ *    team, so anyone whose match plus best possible deltas falls below the match of
+ *    the candidate ranked right after that count is dropped.
+ *  - Candidates without any edge inside the pool are interchangeable apart from
+ *    their match, so only the k best of them are kept.
+ *
+ * The bound for a partial team adds, for the r members still missing, the r best
+ * values of
+ *
+ *     match[j] / (10k) + w * (link[j] + ((r - 1) * defaultPairScore + topDelta[j][r - 1]) / 2)
+ *
+ * over the remaining candidates, with w = 2 / (k(k-1)). link[j] is j's pair score with
+ * the members already chosen and topDelta[j][t] the sum of j's t largest positive
+ * deltas towards candidates that are still selectable, so each pair among the new
+ * members is counted at most half from each side. The bound is computed for every
+ * suffix of the candidate list at once, so the loop over the next member stops as
+ * soon as the candidates left cannot beat the incumbent.
+ *
+ * The search starts from a greedy team and stops at the time budget, returning the
+ * best team found so far.
+ */
+public class TeamSearch {
+    private final double defaultPairScore;
+    private final int k;
+    private final long deadline;
+    private final double w;
+
+    // Reduced pool; original[i] is the caller's index of candidate i
+    private int[] original;
+    private double[] match;
+    private int[][] neighbours;
+    private double[][] deltas;
+    private int n;
+
+    private int[][] bestNeighbours;
+    private double[][] bestDeltas;
+    private double[] linkDelta;
+    private int[] chosen;
+    private double[] topValues;
+    private double[][] suffixBound;
+
+    private int[] best;
+    private double bestScore = Double.NEGATIVE_INFINITY;
+    private long nodes = 0;
+    private boolean timedOut = false;
+
+    /**
+     * @param match            UserToProjectMatch per candidate, candidates sorted by it descending
+     * @param neighbours       for each candidate, the candidates it collaborated with
+     * @param deltas           pair score minus defaultPairScore, parallel to neighbours
+     * @param defaultPairScore pair score of two candidates that never collaborated
+     * @param k                team size
+     * @param budgetMillis     time budget for the search
+     */
+    public TeamSearch(double[] match, int[][] neighbours, double[][] deltas,
+                      double defaultPairScore, int k, long budgetMillis) {
+        this.match = match;
+        this.neighbours = neighbours;
+        this.deltas = deltas;
+        this.n = match.length;
+        this.defaultPairScore = defaultPairScore;
+        this.k = k;
+        this.deadline = System.nanoTime() + budgetMillis * 1_000_000L;
+        this.w = k > 1 ? 2.0 / (k * (k - 1)) : 0.0;
+
+        this.original = new int[n];
+        for (int i = 0; i < n; i++) original[i] = i;
+    }
+
+    /** Runs the search and returns the chosen candidate indexes, or an empty array if n < k. */
+    public int[] solve() {
+        if (k <= 0 || n < k) {
+            return new int[0];
+        }
+        reducePool();
+        prepare();
+        greedy();
+        search(0, 0, 0.0, 0.0);
+
+        int[] team = new int[k];
+        for (int i = 0; i < k; i++) team[i] = original[best[i]];
+        return team;
+    }
+
+    public double bestScore() {
+        return bestScore;
+    }
+
+    public long nodesExplored() {
+        return nodes;
+    }
+
+    public boolean timedOut() {
+        return timedOut;
+    }
+
+    /** Number of candidates left after the pool reduction. */
+    public int poolSize() {
+        return n;
+    }
+
+    private void reducePool() {
+        while (true) {
+            int[] degree = new int[n];
+            for (int j = 0; j < n; j++) degree[j] = neighbours[j].length;
+
+            // Candidates that can be in or next to any team of size k
+            int[] sortedDegree = degree.clone();
+            Arrays.sort(sortedDegree);
+            long reach = k;
+            for (int i = 0; i < k; i++) reach += sortedDegree[n - 1 - i];
+            double threshold = reach < n ? match[(int) reach] / (10.0 * k) : Double.NEGATIVE_INFINITY;
+
+            boolean[] keep = new boolean[n];
+            int isolatedKept = 0;
+            int kept = 0;
+            for (int j = 0; j < n; j++) {
+                double[] sorted = deltas[j].clone();
+                Arrays.sort(sorted);
+                double deltaSum = 0.0;
+                for (int i = sorted.length - 1; i >= 0 && i >= sorted.length - (k - 1) && sorted[i] > 0; i--) {
+                    deltaSum += sorted[i];
+                }
+                if (match[j] / (10.0 * k) + w * deltaSum < threshold) continue;
+                if (degree[j] == 0 && isolatedKept++ >= k) continue;
+                keep[j] = true;
+                kept++;
+            }
+            if (kept == n || kept < k) return;
+            restrictTo(keep, kept);
+        }
+    }
+
+    private void restrictTo(boolean[] keep, int kept) {
+        int[] position = new int[n];
+        int[] keptOriginal = new int[kept];
+        double[] keptMatch = new double[kept];
+        int next = 0;
+        for (int j = 0; j < n; j++) {
+            position[j] = keep[j] ? next : -1;
+            if (keep[j]) {
+                keptOriginal[next] = original[j];
+                keptMatch[next++] = match[j];
+            }
+        }
+
+        int[][] keptNeighbours = new int[kept][];
+        double[][] keptDeltas = new double[kept][];
+        for (int j = 0; j < n; j++) {
+            if (!keep[j]) continue;
+            int[] nb = new int[neighbours[j].length];
+            double[] delta = new double[nb.length];
+            int count = 0;
+            for (int i = 0; i < nb.length; i++) {
+                int p = position[neighbours[j][i]];
+                if (p < 0) continue;
+                nb[count] = p;
+                delta[count++] = deltas[j][i];
+            }
+            keptNeighbours[position[j]] = Arrays.copyOf(nb, count);
+            keptDeltas[position[j]] = Arrays.copyOf(delta, count);
+        }
+
+        original = keptOriginal;
+        match = keptMatch;
+        neighbours = keptNeighbours;
+        deltas = keptDeltas;
+        n = kept;
+    }
+
+    private void prepare() {
+        linkDelta = new double[n];
+        chosen = new int[k];
+        topValues = new double[k];
+        suffixBound = new double[k][n + 1];
+        bestNeighbours = new int[n][];
+        bestDeltas = new double[n][];
+
+        // Positive deltas of each candidate, largest first
+        for (int j = 0; j < n; j++) {
+            Integer[] order = new Integer[deltas[j].length];
+            int positive = 0;
+            for (int i = 0; i < order.length; i++) {
+                if (deltas[j][i] > 0) order[positive++] = i;
+            }
+            double[] delta = deltas[j];
+            Arrays.sort(order, 0, positive, (x, y) -> Double.compare(delta[y], delta[x]));
+            bestNeighbours[j] = new int[positive];
+            bestDeltas[j] = new double[positive];
+            for (int i = 0; i < positive; i++) {
+                bestNeighbours[j][i] = neighbours[j][order[i]];
+                bestDeltas[j][i] = delta[order[i]];
+            }
+        }
+    }
+
+    // Builds the starting incumbent by adding the best marginal candidate k times
+    private void greedy() {
+        boolean[] used = new boolean[n];
+        double matchSum = 0.0;
+        double pairSum = 0.0;
+        for (int size = 0; size < k; size++) {
+            int pick = -1;
+            double pickGain = Double.NEGATIVE_INFINITY;
+            for (int j = 0; j < n; j++) {
+                if (used[j]) continue;
+                double gain = match[j] / (10.0 * k) + w * (size * defaultPairScore + linkDelta[j]);
+                if (gain > pickGain) {
+                    pickGain = gain;
+                    pick = j;
+                }
+            }
+            used[pick] = true;
+            chosen[size] = pick;
+            matchSum += match[pick];
+            pairSum += size * defaultPairScore + linkDelta[pick];
+            addLinks(pick, 1.0);
+        }
+        for (int size = 0; size < k; size++) {
+            addLinks(chosen[size], -1.0);
+        }
+        record(matchSum, pairSum);
+    }
+
+    private void search(int from, int size, double matchSum, double pairSum) {
+        if (size == k) {
+            record(matchSum, pairSum);
+            return;
+        }
+        if (timedOut || ((++nodes & 0x3FF) == 0 && System.nanoTime() > deadline)) {
+            timedOut = true;
+            return;
+        }
+
+        int remaining = k - size;
+        double partial = score(matchSum, pairSum);
+        double[] bound = suffixBound[size];
+        computeBounds(from, size, remaining, bound);
+
+        for (int j = from; j <= n - remaining; j++) {
+            if (partial + bound[j] <= bestScore) return;
+            chosen[size] = j;
+            addLinks(j, 1.0);
+            search(j + 1, size + 1, matchSum + match[j],
+                   pairSum + size * defaultPairScore + linkDelta[j]);
+            addLinks(j, -1.0);
+            if (timedOut) return;
+        }
+    }
+
+    // bound[j] = sum of the `remaining` best candidate values among candidates j..n-1
+    private void computeBounds(int from, int size, int remaining, double[] bound) {
+        Arrays.fill(topValues, 0, remaining, Double.NEGATIVE_INFINITY);
+        double pendingDefault = (remaining - 1) * defaultPairScore / 2.0;
+        double sum = 0.0;
+        int filled = 0;
+        for (int j = n - 1; j >= from; j--) {
+            double value = match[j] / (10.0 * k)
+                + w * (size * defaultPairScore + linkDelta[j] + pendingDefault + topDelta(j, from, remaining - 1) / 2.0);
+            // Keep the `remaining` largest values in descending order
+            if (value > topValues[remaining - 1]) {
+                if (filled == remaining) {
+                    sum -= topValues[remaining - 1];
+                } else {
+                    filled++;
+                }
+                int i = remaining - 1;
+                while (i > 0 && topValues[i - 1] < value) {
+                    topValues[i] = topValues[i - 1];
+                    i--;
+                }
+                topValues[i] = value;
+                sum += value;
+            }
+            bound[j] = filled == remaining ? sum : Double.NEGATIVE_INFINITY;
+        }
+    }
+
+    // Sum of j's `count` largest positive deltas towards candidates from..n-1
+    private double topDelta(int j, int from, int count) {
+        double sum = 0.0;
+        int[] adjacent = bestNeighbours[j];
+        for (int i = 0; i < adjacent.length && count > 0; i++) {
+            if (adjacent[i] >= from) {
+                sum += bestDeltas[j][i];
+                count--;
+            }
+        }
+        return sum;
+    }
+
+    private void addLinks(int j, double sign) {
+        int[] adjacent = neighbours[j];
+        double[] delta = deltas[j];
+        for (int i = 0; i < adjacent.length; i++) {
+            linkDelta[adjacent[i]] += sign * delta[i];
+        }
+    }
+
+    private double score(double matchSum, double pairSum) {
+        return w * pairSum + matchSum / (10.0 * k);
+    }
+
+    private void record(double matchSum, double pairSum) {
+        double score = score(matchSum, pairSum);
+        if (score > bestScore) {
+            bestScore = score;
+            best = Arrays.copyOf(chosen, k);
+        }
+    }
+}
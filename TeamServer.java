@@ -0,0 +1,268 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.*;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Team recommendation as a small JSON service for other systems, on the JDK's built-in
+ * HTTP server:
+ *
+ *     java TeamServer --data=. --port=8080
+ *
+ *     GET  /recommend?project=P01&algorithm=dfs       recommendation, as TeamCli prints it
+ *     GET  /staff                                     batch staffing of all not_started projects
+ *     GET  /score?project=P01&team=U01,U02,U03        scores of a team picked by the caller
+ *     GET  /score/pair?users=U01,U02                  UserPairScore of two users
+ *     POST /projects/P01/status?to=on_going           status change with its team effects
+ *     GET  /health
+ *
+ * Every request runs on its own virtual thread when the JVM has them and on a cached
+ * pool otherwise. All requests share one TeamEngine; reads go to the in-memory tables
+ * without locking, and status changes commit as transactions that fail with 409 when
+ * the project changed concurrently; a change the project's state does not allow gets
+ * 400. Like the desktop app, the server compacts the data
+ * files in the background and follows edits other programs make to them.
+ */
+public class TeamServer {
+    private static final long COMPACTION_INTERVAL_SECONDS = 30;
+
+    static {
+        // Without TCP_NODELAY, a small response on a kept-alive connection waits for the
+        // client's delayed ACK (about 40 ms). The server reads this when it is first created.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private final TeamEngine engine;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    public TeamServer(TeamEngine engine, int port) throws IOException {
+        this.engine = engine;
+        this.server = HttpServer.create(new InetSocketAddress(port), 1024);
+        this.executor = requestExecutor();
+        server.setExecutor(executor);
+        server.createContext("/recommend", exchange -> handle(exchange, "/recommend", "GET", this::recommend));
+        server.createContext("/staff", exchange -> handle(exchange, "/staff", "GET", this::staff));
+        server.createContext("/score/pair", exchange -> handle(exchange, "/score/pair", "GET", this::pairScore));
+        server.createContext("/score", exchange -> handle(exchange, "/score", "GET", this::score));
+        // Project paths carry the project ID; changeStatus checks the rest of the path
+        server.createContext("/projects/", exchange -> handle(exchange, null, "POST", this::changeStatus));
+        server.createContext("/health", exchange -> handle(exchange, "/health", "GET", this::health));
+    }
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                System.err.println("Unknown argument: " + arg + " (expected --name=value)");
+                System.exit(2);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        File dir = new File(options.getOrDefault("data", "."));
+        if (!new File(dir, "data_user.txt").isFile()) {
+            System.err.println("No data_user.txt in " + dir);
+            System.exit(2);
+        }
+
+        Metrics.registerMBeans();
+        TeamEngine engine = TeamEngine.inDirectory(dir);
+        engine.load();
+        engine.dataStore().startCompaction(COMPACTION_INTERVAL_SECONDS);
+        engine.watch();
+
+        TeamServer server = new TeamServer(engine, Integer.parseInt(options.getOrDefault("port", "8080")));
+        Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+        server.start();
+        System.out.println("Team Manager service listening on port " + server.port());
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    // Java 21 and later run each request on a virtual thread; the lookup goes through
+    // reflection so the class still compiles and runs on 17
+    static ExecutorService requestExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger count = new AtomicInteger();
+            return Executors.newCachedThreadPool(task -> {
+                Thread thread = new Thread(task, "http-worker-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    private interface Handler {
+        String handle(HttpExchange exchange, Map<String, String> query) throws IOException;
+    }
+
+    // Contexts match every path that starts with theirs, so a path other than the
+    // endpoint's own, such as /scoreboard for /score, is answered with 404 here
+    private void handle(HttpExchange exchange, String path, String method, Handler handler) throws IOException {
+        int status = 200;
+        String body;
+        try {
+            if (path != null && !exchange.getRequestURI().getPath().equals(path)) {
+                status = 404;
+                body = error("Unknown path " + exchange.getRequestURI().getPath());
+            } else if (!exchange.getRequestMethod().equalsIgnoreCase(method)) {
+                exchange.getResponseHeaders().set("Allow", method);
+                status = 405;
+                body = error("Use " + method);
+            } else {
+                body = handler.handle(exchange, query(exchange));
+            }
+        } catch (IllegalArgumentException | TeamEngine.StatusChangeRejected e) {
+            status = 400;
+            body = error(e.getMessage());
+        } catch (NoSuchElementException e) {
+            status = 404;
+            body = error(e.getMessage());
+        } catch (TeamEngine.VersionConflict e) {
+            // Only the version check of a status change; any other failure is a 500
+            status = 409;
+            body = error(e.getMessage());
+        } catch (IOException | RuntimeException e) {
+            status = 500;
+            body = error(String.valueOf(e.getMessage()));
+        }
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private String recommend(HttpExchange exchange, Map<String, String> query) {
+        String projectId = required(query, "project");
+        TeamEngine.Algorithm algorithm = TeamEngine.Algorithm.parse(query.getOrDefault("algorithm", "dfs"));
+        if (engine.dataStore().getProject(projectId) == null) {
+            throw new NoSuchElementException("Project not found: " + projectId);
+        }
+        return engine.recommendAndScore(projectId, algorithm).toJson();
+    }
+
+    private String staff(HttpExchange exchange, Map<String, String> query) {
+        StringBuilder out = new StringBuilder("[");
+        for (TeamEngine.Recommendation result : engine.staffPending()) {
+            if (out.length() > 1) out.append(',');
+            out.append(result.toJson());
+        }
+        return out.append(']').toString();
+    }
+
+    private String score(HttpExchange exchange, Map<String, String> query) {
+        String projectId = required(query, "project");
+        if (engine.dataStore().getProject(projectId) == null) {
+            throw new NoSuchElementException("Project not found: " + projectId);
+        }
+        return engine.scoreTeam(projectId, Arrays.asList(required(query, "team").split(","))).toJson();
+    }
+
+    private String pairScore(HttpExchange exchange, Map<String, String> query) {
+        String[] users = required(query, "users").split(",");
+        if (users.length != 2) {
+            throw new IllegalArgumentException("users must name exactly two users");
+        }
+        TeamEngine.PairScore pair = engine.pairScore(users[0], users[1]);
+        StringBuilder out = new StringBuilder("{");
+        Json.strings(Json.key(out, "users"), Arrays.asList(pair.user1, pair.user2));
+        Json.number(Json.key(out, "successRate"), pair.successRate);
+        Json.number(Json.key(out, "compatibility"), pair.compatibility);
+        Json.number(Json.key(out, "collabBonus"), pair.collabBonus);
+        Json.number(Json.key(out, "score"), pair.score);
+        return out.append('}').toString();
+    }
+
+    // POST /projects/<id>/status?to=<status>; the status may also be the request body
+    private String changeStatus(HttpExchange exchange, Map<String, String> query) throws IOException {
+        String[] path = exchange.getRequestURI().getPath().split("/");
+        if (path.length != 4 || !path[3].equals("status")) {
+            throw new NoSuchElementException("Unknown path " + exchange.getRequestURI().getPath());
+        }
+        String projectId = path[2];
+        String to = query.get("to");
+        if (to == null) {
+            try (InputStream in = exchange.getRequestBody()) {
+                to = new String(in.readAllBytes(), StandardCharsets.UTF_8).trim();
+            }
+        }
+        if (to.isEmpty()) {
+            throw new IllegalArgumentException("Missing target status");
+        }
+
+        String[] before = engine.dataStore().getProject(projectId);
+        String from = before != null && before.length >= 5 ? before[4] : null;
+        List<String> members = engine.changeProjectStatus(projectId, to);
+        StringBuilder out = new StringBuilder("{");
+        Json.string(Json.key(out, "project"), projectId);
+        Json.string(Json.key(out, "from"), from);
+        Json.string(Json.key(out, "to"), to);
+        Json.strings(Json.key(out, to.equals("completed") ? "released" : "assigned"), members);
+        return out.append('}').toString();
+    }
+
+    private String health(HttpExchange exchange, Map<String, String> query) {
+        StringBuilder out = new StringBuilder("{");
+        Json.string(Json.key(out, "status"), "ok");
+        Json.key(out, "users").append(engine.dataStore().users().size());
+        Json.key(out, "projects").append(engine.dataStore().projects().size());
+        Json.key(out, "collaborations").append(engine.dataStore().collaborations().size());
+        Json.key(out, "cache").append('{');
+        Json.key(out, "hits").append(engine.cache().hits());
+        Json.key(out, "misses").append(engine.cache().misses());
+        Json.key(out, "entries").append(engine.cache().size());
+        out.append('}');
+        return out.append('}').toString();
+    }
+
+    private static String required(Map<String, String> query, String name) {
+        String value = query.get(name);
+        if (value == null || value.isEmpty()) {
+            throw new IllegalArgumentException("Missing parameter " + name);
+        }
+        return value;
+    }
+
+    private static Map<String, String> query(HttpExchange exchange) {
+        Map<String, String> query = new HashMap<>();
+        String raw = exchange.getRequestURI().getRawQuery();
+        if (raw == null) return query;
+        for (String pair : raw.split("&")) {
+            int split = pair.indexOf('=');
+            if (split <= 0) continue;
+            query.put(URLDecoder.decode(pair.substring(0, split), StandardCharsets.UTF_8),
+                      URLDecoder.decode(pair.substring(split + 1), StandardCharsets.UTF_8));
+        }
+        return query;
+    }
+
+    private static String error(String message) {
+        return Json.string(Json.key(new StringBuilder("{"), "error"), message).append('}').toString();
+    }
+}
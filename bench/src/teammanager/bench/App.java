@@ -0,0 +1,61 @@
+package teammanager.bench;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * Bridge to the application classes. They live in the unnamed package, which Java
+ * code in a named package cannot import and JMH does not accept benchmarks in, so
+ * every entry point is resolved once as a MethodHandle during setup. The cost of
+ * one bridged call is measured by {@link ScoringBenchmark#bridgeBaseline}.
+ */
+final class App {
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.publicLookup();
+
+    private App() {
+    }
+
+    static Class<?> type(String name) {
+        try {
+            return Class.forName(name);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("Application classes missing from the classpath: " + name, e);
+        }
+    }
+
+    static MethodHandle method(Class<?> owner, String name, Class<?> returnType, Class<?>... params) {
+        try {
+            return LOOKUP.findVirtual(owner, name, MethodType.methodType(returnType, params));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(owner.getName() + "." + name, e);
+        }
+    }
+
+    static MethodHandle staticMethod(Class<?> owner, String name, Class<?> returnType, Class<?>... params) {
+        try {
+            return LOOKUP.findStatic(owner, name, MethodType.methodType(returnType, params));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(owner.getName() + "." + name, e);
+        }
+    }
+
+    static MethodHandle constructor(Class<?> owner, Class<?>... params) {
+        try {
+            return LOOKUP.findConstructor(owner, MethodType.methodType(void.class, params));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(owner.getName() + ".<init>", e);
+        }
+    }
+
+    // Setup code only; benchmarks call the handles directly
+    static Object call(MethodHandle handle, Object... args) {
+        try {
+            return handle.invokeWithArguments(args);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package teammanager.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the suite with the GC profiler attached, so every result carries the
+ * allocation rate next to throughput and average time, and writes the results as
+ * JSON for comparison between runs. Arguments are benchmark name patterns.
+ */
+public class BenchMain {
+    public static void main(String[] args) throws RunnerException {
+        OptionsBuilder builder = new OptionsBuilder();
+        if (args.length == 0) {
+            builder.include(BenchMain.class.getPackage().getName() + ".*Benchmark");
+        }
+        for (String pattern : args) {
+            builder.include(pattern);
+        }
+        Options options = builder
+            .addProfiler(GCProfiler.class)
+            .resultFormat(ResultFormatType.JSON)
+            .result("bench-results.json")
+            .build();
+        new Runner(options).run();
+    }
+}
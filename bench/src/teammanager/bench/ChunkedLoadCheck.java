@@ -0,0 +1,155 @@
+package teammanager.bench;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.invoke.MethodHandle;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Checks that ChunkedReader, which parses pieces of a file in parallel, reads the
+ * same rows as the sequential RecordTokenizer loop, and that DataStore loads the
+ * same collaboration table either way. The files are collaboration lines with
+ * blank lines, separator-only lines such as "|||", keyless rows, CRLF endings,
+ * trailing separators, non-ASCII IDs and an unterminated last line mixed in at
+ * random, so some fall on the piece boundaries.
+ *
+ * ChunkedReader reads sequentially on one processor; there, run the check with
+ * -XX:ActiveProcessorCount=4. Arguments: number of files (default 5). Exits with
+ * status 1 and the differences listed.
+ */
+public class ChunkedLoadCheck {
+    // Well above ChunkedReader.CHUNK_BYTES, so every file is cut into several pieces
+    static final long FILE_BYTES = 12L << 20;
+
+    private static final String[] ODD_LINES = {
+        "", "", "|||", "|", "   ", "\r", "|5|0.1|0.2", " |1|0.5|0.5", "U1,U2|||",
+        "U3,U4|2|0.5|0.6\r", "U5,U6|1|0.5|0.5|", "\u00dc7,\u00dc8|1|0.25|0.75", "U9|x|y|z",
+    };
+
+    private static final Class<?> TOKENIZER = App.type("RecordTokenizer");
+    private static final Class<?> FILE_READS = App.type("Metrics$FileReads");
+    private static final MethodHandle READ_LINES = App.staticMethod(TOKENIZER, "readLines", long.class,
+        File.class, long.class, long.class, boolean.class, FILE_READS, Consumer.class);
+    private static final MethodHandle READ_ROWS = App.staticMethod(App.type("ChunkedReader"), "readRows", void.class,
+        File.class, long.class, FILE_READS, Consumer.class);
+    private static final MethodHandle ROW = App.method(TOKENIZER, "row", String[].class);
+
+    public static void main(String[] args) throws Exception {
+        if (Runtime.getRuntime().availableProcessors() < 2) {
+            System.err.println("ChunkedReader reads sequentially on one processor; run with -XX:ActiveProcessorCount=4");
+            System.exit(2);
+        }
+        int files = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        Object reads = App.call(App.staticMethod(App.type("Metrics"), "fileReads", FILE_READS, String.class),
+            "chunked load check");
+        Path root = Files.createTempDirectory("team-manager-chunked");
+        List<String> broken = new ArrayList<>();
+        try {
+            for (int seed = 0; seed < files; seed++) {
+                Path dir = Files.createDirectory(root.resolve("data" + seed));
+                File file = write(dir, new Random(seed), FILE_BYTES + seed * 7919L);
+                broken.addAll(check(dir, file, reads));
+            }
+        } finally {
+            delete(root);
+        }
+        System.out.printf("%d files, %d differences%n", files, broken.size());
+        if (!broken.isEmpty()) {
+            broken.forEach(System.err::println);
+            System.exit(1);
+        }
+    }
+
+    private static List<String> check(Path dir, File file, Object reads) {
+        String name = file.getParentFile().getName();
+        List<String[]> sequential = new ArrayList<>();
+        Consumer<Object> fields = line -> sequential.add((String[]) App.call(ROW, line));
+        App.call(READ_LINES, file, 0L, file.length(), true, reads, fields);
+        List<String[]> chunked = new ArrayList<>();
+        Consumer<String[]> sink = chunked::add;
+        App.call(READ_ROWS, file, file.length(), reads, sink);
+
+        List<String> broken = new ArrayList<>();
+        compare(name + " ChunkedReader", sequential, chunked, broken);
+
+        // The table skips rows without a key, the same in both loaders
+        List<String[]> keyed = new ArrayList<>();
+        for (String[] row : sequential) {
+            if (row.length > 0 && !row[0].isBlank()) keyed.add(row);
+        }
+        compare(name + " DataStore", keyed, load(dir), broken);
+        return broken;
+    }
+
+    private static void compare(String what, List<String[]> expected, List<String[]> actual, List<String> broken) {
+        if (expected.size() != actual.size()) {
+            broken.add(what + ": " + actual.size() + " rows, expected " + expected.size());
+        }
+        for (int i = 0; i < Math.min(expected.size(), actual.size()); i++) {
+            if (!Arrays.equals(expected.get(i), actual.get(i))) {
+                broken.add(what + ": row " + i + " is " + Arrays.toString(actual.get(i))
+                    + ", expected " + Arrays.toString(expected.get(i)));
+                return;
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<String[]> load(Path dir) {
+        Class<?> storeType = App.type("DataStore");
+        Object store = App.call(App.constructor(storeType, String.class, String.class, String.class, String.class),
+            file(dir, "data_user.txt"), file(dir, "data_skill.txt"), file(dir, "data_project.txt"),
+            file(dir, "data_kolaborasi.txt"));
+        App.call(App.method(storeType, "load", void.class), store);
+        Class<?> tableType = App.type("DataStore$Table");
+        Object table = App.call(App.method(storeType, "collaborations", tableType), store);
+        return (List<String[]>) App.call(App.method(tableType, "all", List.class), table);
+    }
+
+    // Collaboration lines with an odd line about every 50; the last line has no newline
+    private static File write(Path dir, Random random, long bytes) throws IOException {
+        for (String empty : new String[] {"data_user.txt", "data_skill.txt", "data_project.txt"}) {
+            Files.createFile(dir.resolve(empty));
+        }
+        File file = dir.resolve("data_kolaborasi.txt").toFile();
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(file.toPath()),
+                Charset.defaultCharset()))) {
+            long written = 0;
+            while (written < bytes) {
+                String line = random.nextInt(50) == 0
+                    ? ODD_LINES[random.nextInt(ODD_LINES.length)]
+                    : "U" + random.nextInt(100000) + ",U" + random.nextInt(100000) + "|" + (1 + random.nextInt(9))
+                        + "|0." + random.nextInt(100) + "|0." + random.nextInt(100);
+                out.write(line);
+                out.write('\n');
+                written += line.length() + 1;
+            }
+            out.write("U1,U2|1|0.5|0.5");
+        }
+        return file;
+    }
+
+    private static String file(Path dir, String name) {
+        return dir.resolve(name).toString();
+    }
+
+    private static void delete(Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path path : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package teammanager.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * A synthetic data set written by DataGenerator with a fixed seed and loaded through
+ * DataStore exactly like the application does at startup. Size is the number of
+ * users and density the average number of collaboration lines per user; both are
+ * JMH parameters, so every benchmark runs over the whole grid unless -p narrows it.
+ */
+@State(Scope.Benchmark)
+public class Dataset {
+    static final int PROJECTS = 16;
+    static final int SAMPLES = 1024;
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int users;
+
+    @Param({"2", "8", "32"})
+    public int density;
+
+    Path dir;
+    Object store;
+    Object graph;
+    Object recommender;
+
+    Class<?> storeType;
+    Class<?> graphType;
+    Class<?> recommenderType;
+
+    // Fixed inputs sampled once, so every invocation does comparable work
+    String[] projectIds;
+    int[] teamSizes;
+    String[] sampleUsers;
+    String[][] samplePairs;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("team-manager-bench");
+        Map<String, String> options = new HashMap<>();
+        options.put("users", String.valueOf(users));
+        options.put("edges", String.valueOf((long) users * density / 2));
+        options.put("projects", String.valueOf(PROJECTS));
+        options.put("seed", "42");
+        Class<?> generatorType = App.type("DataGenerator");
+        Object generator = App.call(App.constructor(generatorType, Map.class), options);
+        App.call(App.method(generatorType, "generate", void.class, File.class), generator, dir.toFile());
+
+        storeType = App.type("DataStore");
+        graphType = App.type("CollabGraph");
+        recommenderType = App.type("TeamRecommender");
+        Class<?> dictionaryType = App.type("IdDictionary");
+
+        store = App.call(App.constructor(storeType, String.class, String.class, String.class, String.class),
+            file("data_user.txt"), file("data_skill.txt"), file("data_project.txt"), file("data_kolaborasi.txt"));
+        App.call(App.method(storeType, "load", void.class), store);
+        Object ids = App.call(App.method(storeType, "userIds", dictionaryType), store);
+        graph = App.call(App.constructor(graphType, dictionaryType), ids);
+        recommender = App.call(App.constructor(recommenderType, storeType, graphType), store, graph);
+        App.call(App.method(recommenderType, "buildGraph", void.class), recommender);
+
+        List<String[]> projects = rows("projects");
+        projectIds = new String[PROJECTS];
+        teamSizes = new int[PROJECTS];
+        for (int p = 0; p < PROJECTS; p++) {
+            projectIds[p] = projects.get(p)[0];
+            teamSizes[p] = Integer.parseInt(projects.get(p)[2].trim());
+        }
+
+        List<String[]> userRows = rows("users");
+        SplittableRandom random = new SplittableRandom(42);
+        sampleUsers = new String[SAMPLES];
+        samplePairs = new String[SAMPLES][];
+        for (int i = 0; i < SAMPLES; i++) {
+            sampleUsers[i] = userRows.get(random.nextInt(users))[0];
+            samplePairs[i] = new String[]{userRows.get(random.nextInt(users))[0], userRows.get(random.nextInt(users))[0]};
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path path : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    MethodHandle recommenderMethod(String name, Class<?> returnType, Class<?>... params) {
+        return App.method(recommenderType, name, returnType, params);
+    }
+
+    List<String[]> allUsers() {
+        return rows("users");
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<String[]> rows(String table) {
+        Class<?> tableType = App.type("DataStore$Table");
+        Object rows = App.call(App.method(storeType, table, tableType), store);
+        return (List<String[]>) App.call(App.method(tableType, "all", List.class), rows);
+    }
+
+    private String file(String name) {
+        return dir.resolve(name).toString();
+    }
+}
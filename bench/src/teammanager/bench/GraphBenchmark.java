@@ -0,0 +1,61 @@
+package teammanager.bench;
+
+import java.lang.invoke.MethodHandle;
+import java.util.BitSet;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Building the collaboration graph and traversing it from a sampled start user.
+ * CollabGraph.dfs and bfs are the traversals themselves; the recommenders do not run
+ * them, they read the start user's component from the graph's index.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx8g"})
+@State(Scope.Thread)
+public class GraphBenchmark {
+    private MethodHandle buildGraph;
+    private MethodHandle dfs;
+    private MethodHandle bfs;
+    private int next;
+
+    @Setup
+    public void setUp(Dataset data) {
+        buildGraph = data.recommenderMethod("buildGraph", void.class);
+        dfs = App.method(data.graphType, "dfs", BitSet.class, String.class);
+        bfs = App.method(data.graphType, "bfs", BitSet.class, String.class);
+    }
+
+    @Benchmark
+    public void buildGraph(Dataset data) throws Throwable {
+        buildGraph.invoke(data.recommender);
+    }
+
+    @Benchmark
+    public BitSet dfs(Dataset data) throws Throwable {
+        return (BitSet) dfs.invoke(data.graph, nextUser(data));
+    }
+
+    @Benchmark
+    public BitSet bfs(Dataset data) throws Throwable {
+        return (BitSet) bfs.invoke(data.graph, nextUser(data));
+    }
+
+    private String nextUser(Dataset data) {
+        next = (next + 1) & (Dataset.SAMPLES - 1);
+        return data.sampleUsers[next];
+    }
+}
@@ -0,0 +1,167 @@
+package teammanager.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Parsing a whole collaboration file, U01,U02|count|rate|compatibility per line, the
+ * way the loaders did before RecordTokenizer (String per line, then split) and
+ * through RecordTokenizer:
+ *
+ *  - rows: every line as a String[] row, which is what the tables keep
+ *  - chunkedRows: rows through ChunkedReader, which parses pieces of the file on
+ *    the common fork-join pool; run with -jvmArgsAppend -XX:ActiveProcessorCount=n
+ *    to see how it scales with cores (with 1 it reads sequentially)
+ *
+ * fileMb is the size of the file. Each invocation reads all of it, so the results
+ * are single-shot times; divide the size by the time for throughput. The tokenizer
+ * is called through static final handles, which the JIT inlines like direct calls.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g"})
+@State(Scope.Benchmark)
+public class ParseBenchmark {
+    // Bytes of an average generated collaboration line
+    private static final int LINE_BYTES = 30;
+
+    private static final Class<?> TOKENIZER = App.type("RecordTokenizer");
+    private static final MethodHandle READ_LINES = App.staticMethod(TOKENIZER, "readLines", long.class,
+        File.class, long.class, long.class, boolean.class, App.type("Metrics$FileReads"), Consumer.class);
+    private static final MethodHandle READ_ROWS = App.staticMethod(App.type("ChunkedReader"), "readRows", void.class,
+        File.class, long.class, App.type("Metrics$FileReads"), Consumer.class);
+    private static final MethodHandle ROW = exact(App.method(TOKENIZER, "row", String[].class),
+        String[].class);
+
+    @Param({"64", "1024"})
+    public int fileMb;
+
+    private Path dir;
+    private File file;
+    private Object reads;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("team-manager-parse");
+        long edges = (long) fileMb * (1 << 20) / LINE_BYTES;
+        Map<String, String> options = new HashMap<>();
+        options.put("users", String.valueOf(Math.max(1000, edges / 16)));
+        options.put("edges", String.valueOf(edges));
+        options.put("projects", "16");
+        options.put("seed", "42");
+        Class<?> generatorType = App.type("DataGenerator");
+        Object generator = App.call(App.constructor(generatorType, Map.class), options);
+        App.call(App.method(generatorType, "generate", void.class, File.class), generator, dir.toFile());
+        file = dir.resolve("data_kolaborasi.txt").toFile();
+        reads = App.call(App.staticMethod(App.type("Metrics"), "fileReads", App.type("Metrics$FileReads"), String.class),
+            "parse benchmark");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path path : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    @Benchmark
+    public long splitRows(Blackhole blackhole) throws IOException {
+        return splitLines(file, blackhole::consume);
+    }
+
+    @Benchmark
+    public long tokenizerRows(Blackhole blackhole) throws Throwable {
+        Consumer<Object> sink = fields -> {
+            try {
+                blackhole.consume((String[]) ROW.invokeExact(fields));
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        };
+        return (long) READ_LINES.invoke(file, 0L, file.length(), true, reads, sink);
+    }
+
+    @Benchmark
+    public long chunkedRows(Blackhole blackhole) throws Throwable {
+        Consumer<String[]> sink = blackhole::consume;
+        READ_ROWS.invoke(file, file.length(), reads, sink);
+        return file.length();
+    }
+
+    // The line loop DataStore used before RecordTokenizer: decode each line, then split it
+    private static long splitLines(File file, Consumer<String[]> sink) throws IOException {
+        Charset charset = Charset.defaultCharset();
+        byte[] line = new byte[256];
+        int lineLength = 0;
+        long position = 0;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+            int read;
+            while ((read = channel.read(buffer, position)) > 0) {
+                byte[] chunk = buffer.array();
+                for (int i = 0; i < read; i++) {
+                    byte b = chunk[i];
+                    if (b != '\n') {
+                        if (lineLength == line.length) line = Arrays.copyOf(line, line.length * 2);
+                        line[lineLength++] = b;
+                        continue;
+                    }
+                    emit(line, lineLength, charset, sink);
+                    lineLength = 0;
+                }
+                position += read;
+                buffer.clear();
+            }
+        }
+        emit(line, lineLength, charset, sink);
+        return position;
+    }
+
+    private static void emit(byte[] line, int length, Charset charset, Consumer<String[]> sink) {
+        if (length > 0 && line[length - 1] == '\r') length--;
+        if (length == 0) return;
+        sink.accept(new String(line, 0, length, charset).split("\\|"));
+    }
+
+    // Typed with Object as the receiver, so invokeExact works without naming RecordTokenizer
+    private static MethodHandle exact(MethodHandle handle, Class<?> returnType, Class<?>... params) {
+        Class<?>[] withReceiver = new Class<?>[params.length + 1];
+        withReceiver[0] = Object.class;
+        System.arraycopy(params, 0, withReceiver, 1, params.length);
+        return handle.asType(MethodType.methodType(returnType, withReceiver));
+    }
+}
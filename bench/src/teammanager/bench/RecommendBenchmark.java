@@ -0,0 +1,82 @@
+package teammanager.bench;
+
+import java.lang.invoke.MethodHandle;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Full recommendations for the generated projects in turn, and the member selection
+ * step on its own with the inputs the recommenders would pass it. rekomendasiTimDFS
+ * and rekomendasiTimBFS share one implementation that reads the start user's
+ * component from CollabGraph's index, so they are measured once, as rekomendasiTimDFS;
+ * GraphBenchmark measures the traversals themselves.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx8g"})
+@State(Scope.Thread)
+public class RecommendBenchmark {
+    private MethodHandle dfs;
+    private MethodHandle select;
+
+    private List<String[]> users;
+    private long[][] requirements;
+    private int[] components;
+    private int next;
+
+    @Setup
+    public void setUp(Dataset data) {
+        dfs = data.recommenderMethod("rekomendasiTimDFS", List.class, String.class);
+        select = data.recommenderMethod("selectTeamMembers", List.class, List.class, int.class, long[].class, int.class);
+
+        Class<?> skillIndexType = App.type("SkillIndex");
+        Object skillIndex = App.call(App.method(data.storeType, "skillIndex", skillIndexType), data.store);
+        MethodHandle requirement = App.method(skillIndexType, "requirement", long[].class, String.class);
+        MethodHandle findStart = data.recommenderMethod("findBestStartUser", String.class, List.class, long[].class);
+        Class<?> dictionaryType = App.type("IdDictionary");
+        Object ids = App.call(App.method(data.storeType, "userIds", dictionaryType), data.store);
+        MethodHandle intern = App.method(dictionaryType, "intern", int.class, String.class);
+        MethodHandle component = App.method(data.graphType, "component", int.class, int.class);
+        MethodHandle project = App.method(data.storeType, "getProject", String[].class, String.class);
+
+        users = data.allUsers();
+        requirements = new long[Dataset.PROJECTS][];
+        components = new int[Dataset.PROJECTS];
+        for (int p = 0; p < Dataset.PROJECTS; p++) {
+            String[] row = (String[]) App.call(project, data.store, data.projectIds[p]);
+            requirements[p] = (long[]) App.call(requirement, skillIndex, row[1]);
+            String start = (String) App.call(findStart, data.recommender, users, requirements[p]);
+            int startId = start == null ? -1 : (Integer) App.call(intern, ids, start);
+            components[p] = (Integer) App.call(component, data.graph, startId);
+        }
+    }
+
+    @Benchmark
+    public List<?> rekomendasiTimDFS(Dataset data) throws Throwable {
+        return (List<?>) dfs.invoke(data.recommender, data.projectIds[nextProject()]);
+    }
+
+    @Benchmark
+    public List<?> selectTeamMembers(Dataset data) throws Throwable {
+        int p = nextProject();
+        return (List<?>) select.invoke(data.recommender, users, components[p], requirements[p], data.teamSizes[p]);
+    }
+
+    private int nextProject() {
+        next = (next + 1) % Dataset.PROJECTS;
+        return next;
+    }
+}
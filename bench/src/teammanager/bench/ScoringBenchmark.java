@@ -0,0 +1,76 @@
+package teammanager.bench;
+
+import java.lang.invoke.MethodHandle;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The per-user and per-pair scoring functions on sampled users and pairs. Each call
+ * crosses the MethodHandle bridge once; bridgeBaseline measures that overhead with
+ * a call that does no work, to be subtracted when comparing tiny scorers.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx8g"})
+@State(Scope.Thread)
+public class ScoringBenchmark {
+    private MethodHandle skillMatch;
+    private MethodHandle availability;
+    private MethodHandle successRate;
+    private MethodHandle compatibility;
+    private MethodHandle collabBonus;
+    private MethodHandle baseline;
+    private int next;
+
+    @Setup
+    public void setUp(Dataset data) {
+        skillMatch = data.recommenderMethod("hitungSkillMatchScore", double.class, String.class, String.class);
+        availability = data.recommenderMethod("hitungAvailabilityBonus", double.class, String.class);
+        successRate = data.recommenderMethod("hitungSuccessRate", double.class, String.class, String.class);
+        compatibility = data.recommenderMethod("hitungCompatibility", double.class, String.class, String.class);
+        collabBonus = data.recommenderMethod("hitungCollabBonus", double.class, String.class, String.class);
+        baseline = data.recommenderMethod("lastSearch", App.type("TeamSearch"));
+    }
+
+    @Benchmark
+    public Object bridgeBaseline(Dataset data) throws Throwable {
+        return baseline.invoke(data.recommender);
+    }
+
+    @Benchmark
+    public double skillMatchScore(Dataset data) throws Throwable {
+        int i = nextSample();
+        return (double) skillMatch.invoke(data.recommender, data.sampleUsers[i], data.projectIds[i % Dataset.PROJECTS]);
+    }
+
+    @Benchmark
+    public double availabilityBonus(Dataset data) throws Throwable {
+        return (double) availability.invoke(data.recommender, data.sampleUsers[nextSample()]);
+    }
+
+    @Benchmark
+    public double userPairScore(Dataset data) throws Throwable {
+        String[] pair = data.samplePairs[nextSample()];
+        double rate = (double) successRate.invoke(data.recommender, pair[0], pair[1]);
+        double compat = (double) compatibility.invoke(data.recommender, pair[0], pair[1]);
+        double bonus = (double) collabBonus.invoke(data.recommender, pair[0], pair[1]);
+        return rate * 0.5 + compat * 0.3 + bonus * 0.2;
+    }
+
+    private int nextSample() {
+        next = (next + 1) & (Dataset.SAMPLES - 1);
+        return next;
+    }
+}
@@ -0,0 +1,266 @@
+package teammanager.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+
+/**
+ * Correctness counterpart of StoreStressBenchmark: writers update rows, replace them
+ * by compare-and-set, and delete and append them again while readers fetch them and a
+ * compactor rewrites the files. Afterwards the users table must be consistent:
+ *
+ *  - the row count is the initial count plus every append minus every removed row,
+ *  - the index maps each key to its first row (DataStore.Table#inconsistencies),
+ *  - ages grew by exactly the number of successful updates and compare-and-sets,
+ *  - the files reload to the same rows.
+ *
+ * While it runs, readers check that a fetched row carries the key asked for and that
+ * no key's version ever goes down. Arguments: seconds to run (default 5) and writer
+ * threads per kind (default 2). Exits with status 1 and the broken invariants listed.
+ */
+public class StoreConsistencyCheck {
+    static final int USERS = 2000;
+    static final int HOT_KEYS = 32;
+    static final int CHURN_KEYS = 32;
+
+    private final Path dir;
+    private final Object store;
+    private final Object table;
+    private final MethodHandle update;
+    private final MethodHandle compareAndSet;
+    private final MethodHandle append;
+    private final MethodHandle delete;
+    private final MethodHandle get;
+    private final MethodHandle version;
+    private final MethodHandle compact;
+    private final String[] hot = new String[HOT_KEYS];
+    private final String[] churn = new String[CHURN_KEYS];
+    private final Map<String, String[]> churnRows = new HashMap<>();
+    private final int[] initialAges = new int[HOT_KEYS];
+    private final int initialSize;
+
+    private final AtomicLong ageChanges = new AtomicLong();
+    private final AtomicLong appended = new AtomicLong();
+    private final AtomicLong removed = new AtomicLong();
+    private final AtomicLong reads = new AtomicLong();
+    private final Queue<String> problems = new ConcurrentLinkedQueue<>();
+    private volatile boolean running = true;
+
+    private static final UnaryOperator<String[]> OLDER_BY_ONE = row -> {
+        String[] next = row.clone();
+        next[2] = String.valueOf(Integer.parseInt(next[2].trim()) + 1);
+        return next;
+    };
+
+    StoreConsistencyCheck(Path dir) {
+        this.dir = dir;
+        Map<String, String> options = new HashMap<>();
+        options.put("users", String.valueOf(USERS));
+        options.put("seed", "42");
+        Class<?> generatorType = App.type("DataGenerator");
+        Object generator = App.call(App.constructor(generatorType, Map.class), options);
+        App.call(App.method(generatorType, "generate", void.class, File.class), generator, dir.toFile());
+
+        store = open();
+        Class<?> storeType = store.getClass();
+        Class<?> tableType = App.type("DataStore$Table");
+        table = App.call(App.method(storeType, "users", tableType), store);
+        update = App.method(storeType, "updateUser", boolean.class, String.class, UnaryOperator.class);
+        compareAndSet = App.method(tableType, "compareAndSet", boolean.class, String.class, long.class, String[].class);
+        append = App.method(tableType, "append", void.class, String[].class);
+        delete = App.method(tableType, "delete", int.class, String.class);
+        get = App.method(tableType, "get", String[].class, String.class);
+        version = App.method(tableType, "version", long.class, String.class);
+        compact = App.method(storeType, "compact", void.class);
+
+        List<String[]> rows = rows(table);
+        initialSize = rows.size();
+        for (int i = 0; i < HOT_KEYS; i++) {
+            String[] row = rows.get(i * 2);
+            hot[i] = row[0];
+            initialAges[i] = Integer.parseInt(row[2].trim());
+        }
+        for (int i = 0; i < CHURN_KEYS; i++) {
+            String[] row = rows.get(i * 2 + 1);
+            churn[i] = row[0];
+            churnRows.put(row[0], row);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        long seconds = args.length > 0 ? Long.parseLong(args[0]) : 5;
+        int writers = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+        Path dir = Files.createTempDirectory("team-manager-consistency");
+        List<String> broken;
+        try {
+            broken = new StoreConsistencyCheck(dir).run(seconds * 1000, writers);
+        } finally {
+            delete(dir);
+        }
+        if (!broken.isEmpty()) {
+            broken.forEach(System.err::println);
+            System.exit(1);
+        }
+    }
+
+    List<String> run(long millis, int writers) throws InterruptedException {
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < writers; i++) {
+            int seed = i;
+            threads.add(worker("update-" + i, step -> updateOnce(seed, step)));
+            threads.add(worker("cas-" + i, step -> compareAndSetOnce(seed, step)));
+            threads.add(worker("churn-" + i, step -> churnOnce(seed, step)));
+            threads.add(reader("read-" + i));
+        }
+        threads.add(worker("compact", step -> {
+            compact.invoke(store);
+            Thread.sleep(20);
+        }));
+        for (Thread thread : threads) thread.start();
+        Thread.sleep(millis);
+        running = false;
+        for (Thread thread : threads) thread.join();
+
+        List<String> broken = new ArrayList<>(problems);
+        broken.addAll(verify("in memory", store));
+        broken.addAll(verify("after reload", open()));
+        System.out.printf("%d age changes, %d appends, %d rows removed, %d reads, %d problems%n",
+            ageChanges.get(), appended.get(), removed.get(), reads.get(), broken.size());
+        return broken;
+    }
+
+    private interface Step {
+        void run(long step) throws Throwable;
+    }
+
+    private Thread worker(String name, Step step) {
+        return new Thread(() -> {
+            try {
+                for (long i = 0; running; i++) step.run(i);
+            } catch (Throwable e) {
+                problems.add(name + " failed: " + e);
+            }
+        }, name);
+    }
+
+    private int cursor(int seed, long step) {
+        return (int) ((seed * 7 + step) % HOT_KEYS);
+    }
+
+    private void updateOnce(int seed, long step) throws Throwable {
+        String key = hot[cursor(seed, step)];
+        if ((boolean) update.invoke(store, key, OLDER_BY_ONE)) ageChanges.incrementAndGet();
+    }
+
+    private void compareAndSetOnce(int seed, long step) throws Throwable {
+        String key = hot[cursor(seed + 3, step)];
+        long expected = (long) version.invoke(table, key);
+        String[] row = (String[]) get.invoke(table, key);
+        if ((boolean) compareAndSet.invoke(table, key, expected, OLDER_BY_ONE.apply(row))) {
+            ageChanges.incrementAndGet();
+        }
+    }
+
+    private void churnOnce(int seed, long step) throws Throwable {
+        String key = churn[(int) ((seed * 5 + step) % CHURN_KEYS)];
+        removed.addAndGet((int) delete.invoke(table, key));
+        append.invoke(table, (Object) churnRows.get(key));
+        appended.incrementAndGet();
+    }
+
+    private Thread reader(String name) {
+        Map<String, Long> seen = new HashMap<>();
+        String[] keys = Arrays.copyOf(hot, HOT_KEYS + CHURN_KEYS);
+        System.arraycopy(churn, 0, keys, HOT_KEYS, CHURN_KEYS);
+        return worker(name, step -> {
+            for (String key : keys) {
+                long current = (long) version.invoke(table, key);
+                Long last = seen.put(key, current);
+                if (last != null && current < last) {
+                    problems.add(key + " went from version " + last + " back to " + current);
+                }
+                String[] row = (String[]) get.invoke(table, key);
+                if (row != null && !row[0].equals(key)) {
+                    problems.add("asked for " + key + " but got the row of " + row[0]);
+                }
+                reads.incrementAndGet();
+            }
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<String> verify(String where, Object loaded) {
+        Class<?> tableType = App.type("DataStore$Table");
+        Object users = App.call(App.method(loaded.getClass(), "users", tableType), loaded);
+        List<String> broken = new ArrayList<>();
+        for (String problem : (List<String>) App.call(App.method(tableType, "inconsistencies", List.class), users)) {
+            broken.add(where + ": " + problem);
+        }
+        List<String[]> rows = rows(users);
+        long expectedSize = initialSize + appended.get() - removed.get();
+        if (rows.size() != expectedSize) {
+            broken.add(where + ": " + rows.size() + " rows, expected " + expectedSize);
+        }
+        long grown = 0;
+        MethodHandle fetch = App.method(tableType, "get", String[].class, String.class);
+        for (int i = 0; i < HOT_KEYS; i++) {
+            String[] row = (String[]) App.call(fetch, users, hot[i]);
+            if (row == null) {
+                broken.add(where + ": " + hot[i] + " is missing");
+                continue;
+            }
+            grown += Integer.parseInt(row[2].trim()) - initialAges[i];
+        }
+        if (grown != ageChanges.get()) {
+            broken.add(where + ": " + ageChanges.get() + " age changes but ages grew by " + grown);
+        }
+        if (loaded != store) {
+            List<String[]> inMemory = rows(table);
+            for (int i = 0; i < Math.min(rows.size(), inMemory.size()); i++) {
+                if (!Arrays.equals(rows.get(i), inMemory.get(i))) {
+                    broken.add(where + ": row " + i + " differs from memory");
+                    break;
+                }
+            }
+        }
+        return broken;
+    }
+
+    private Object open() {
+        Class<?> storeType = App.type("DataStore");
+        Object opened = App.call(App.constructor(storeType, String.class, String.class, String.class, String.class),
+            file("data_user.txt"), file("data_skill.txt"), file("data_project.txt"), file("data_kolaborasi.txt"));
+        App.call(App.method(storeType, "load", void.class), opened);
+        return opened;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<String[]> rows(Object table) {
+        return (List<String[]>) App.call(App.method(App.type("DataStore$Table"), "all", List.class), table);
+    }
+
+    private String file(String name) {
+        return dir.resolve(name).toString();
+    }
+
+    private static void delete(Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path path : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package teammanager.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Readers and writers on the same user rows at once. Writers add one to a user's age
+ * through DataStore.updateUser(uid, change), readers fetch users through getUser.
+ * hotKeys is how many users the writers share: 1 makes every writer contend for one
+ * row, larger values spread them over the lock stripes.
+ *
+ * The trial fails when an update was lost: at teardown the ages must have grown by
+ * exactly the number of updates, both in memory and after reloading the files, and
+ * the users table must pass its own consistency check. StoreConsistencyCheck covers
+ * compare-and-set, deletes and compaction as well.
+ * The store has its own small data set, since every update forces the log to disk.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StoreStressBenchmark {
+    static final int USERS = 10000;
+
+    @State(Scope.Group)
+    public static class Store {
+        @Param({"1", "16", "1024"})
+        public int hotKeys;
+
+        Path dir;
+        Object store;
+        MethodHandle update;
+        MethodHandle get;
+        String[] keys;
+        int[] initialAges;
+        final LongAdder updates = new LongAdder();
+
+        final UnaryOperator<String[]> olderByOne = row -> {
+            String[] next = row.clone();
+            next[2] = String.valueOf(Integer.parseInt(next[2].trim()) + 1);
+            return next;
+        };
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            dir = Files.createTempDirectory("team-manager-stress");
+            Map<String, String> options = new HashMap<>();
+            options.put("users", String.valueOf(USERS));
+            options.put("seed", "42");
+            Class<?> generatorType = App.type("DataGenerator");
+            Object generator = App.call(App.constructor(generatorType, Map.class), options);
+            App.call(App.method(generatorType, "generate", void.class, File.class), generator, dir.toFile());
+
+            store = open();
+            Class<?> storeType = store.getClass();
+            update = App.method(storeType, "updateUser", boolean.class, String.class, UnaryOperator.class);
+            get = App.method(storeType, "getUser", String[].class, String.class);
+
+            List<String[]> users = users(store);
+            keys = new String[hotKeys];
+            initialAges = new int[hotKeys];
+            for (int i = 0; i < hotKeys; i++) {
+                String[] row = users.get(i * (USERS / hotKeys));
+                keys[i] = row[0];
+                initialAges[i] = Integer.parseInt(row[2].trim());
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void verifyAndClean() throws IOException {
+            try {
+                check("in memory", store);
+                check("after reload", open());
+            } finally {
+                try (Stream<Path> files = Files.walk(dir)) {
+                    for (Path path : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                        Files.deleteIfExists(path);
+                    }
+                }
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private void check(String where, Object loaded) throws IOException {
+            Class<?> tableType = App.type("DataStore$Table");
+            Object table = App.call(App.method(loaded.getClass(), "users", tableType), loaded);
+            List<String> problems = (List<String>) App.call(App.method(tableType, "inconsistencies", List.class), table);
+            if (!problems.isEmpty()) {
+                throw new IllegalStateException("Inconsistent users table " + where + ": " + problems);
+            }
+            long grown = 0;
+            for (int i = 0; i < keys.length; i++) {
+                String[] row = (String[]) App.call(get, loaded, keys[i]);
+                grown += Integer.parseInt(row[2].trim()) - initialAges[i];
+            }
+            if (grown != updates.sum()) {
+                throw new IllegalStateException("Lost updates " + where + ": " + updates.sum()
+                    + " updates but ages grew by " + grown);
+            }
+        }
+
+        private Object open() {
+            Class<?> storeType = App.type("DataStore");
+            Object opened = App.call(App.constructor(storeType, String.class, String.class, String.class, String.class),
+                file("data_user.txt"), file("data_skill.txt"), file("data_project.txt"), file("data_kolaborasi.txt"));
+            App.call(App.method(storeType, "load", void.class), opened);
+            return opened;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static List<String[]> users(Object store) {
+            Class<?> tableType = App.type("DataStore$Table");
+            Object table = App.call(App.method(store.getClass(), "users", tableType), store);
+            return (List<String[]>) App.call(App.method(tableType, "all", List.class), table);
+        }
+
+        private String file(String name) {
+            return dir.resolve(name).toString();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+
+        int next(int bound) {
+            next = next + 1 == bound ? 0 : next + 1;
+            return next;
+        }
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(2)
+    public boolean write(Store store, Cursor cursor) throws Throwable {
+        boolean updated = (boolean) store.update.invoke(store.store, store.keys[cursor.next(store.hotKeys)], store.olderByOne);
+        if (updated) store.updates.increment();
+        return updated;
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(6)
+    public String[] read(Store store, Cursor cursor) throws Throwable {
+        return (String[]) store.get.invoke(store.store, store.keys[cursor.next(store.hotKeys)]);
+    }
+}